@@ -0,0 +1,30 @@
+package me.elaamiri.MockitoTutorial.benchmarks;
+
+import me.elaamiri.MockitoTutorial.MockitoTutorialApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application without the web layer against its own embedded H2 database.
+ */
+final class BenchmarkApplication {
+    private BenchmarkApplication(){
+    }
+
+    static ConfigurableApplicationContext start(String... properties){
+        // Command line arguments, so they win over application.properties
+        List<String> args = new ArrayList<>(List.of(
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN",
+                "spring.datasource.generate-unique-name=true"));
+        args.addAll(List.of(properties));
+        return new SpringApplicationBuilder(MockitoTutorialApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+}
@@ -0,0 +1,52 @@
+package me.elaamiri.MockitoTutorial.benchmarks;
+
+import me.elaamiri.MockitoTutorial.dtos.BatchResultDto;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Batch insert throughput per chunk size, the score is in records per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonBatchBenchmark {
+    private static final int RECORDS = 5_000;
+
+    @Param({"50", "500", "5000"})
+    int chunkSize;
+
+    private ConfigurableApplicationContext context;
+    private PersonService personService;
+    private List<PersonDto> persons;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        context = BenchmarkApplication.start();
+        personService = context.getBean(PersonService.class);
+        persons = IntStream.range(0, RECORDS)
+                .mapToObj(i -> PersonDto.builder().firstName("first" + i).lastName("last" + i).birthDate(new Date()).build())
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public BatchResultDto createPersons(){
+        return personService.createPersons(persons, chunkSize);
+    }
+}
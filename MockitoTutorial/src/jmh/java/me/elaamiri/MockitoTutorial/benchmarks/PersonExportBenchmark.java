@@ -0,0 +1,62 @@
+package me.elaamiri.MockitoTutorial.benchmarks;
+
+import me.elaamiri.MockitoTutorial.dtos.ExportResultDto;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.services.PersonExportService;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Full table export to gzipped CSV per export parallelism, the score is in rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonExportBenchmark {
+    private static final int ROWS = 100_000;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    private ConfigurableApplicationContext context;
+    private PersonExportService personExportService;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("person-export-benchmark");
+        context = BenchmarkApplication.start(
+                "persons.export.directory=" + directory,
+                "persons.export.parallelism=" + parallelism,
+                "persons.export.range-size=" + ROWS / 16);
+        Date now = new Date();
+        context.getBean(PersonService.class).createPersons(IntStream.range(0, ROWS)
+                .mapToObj(i -> PersonDto.builder().firstName("first" + i).lastName("last" + i).birthDate(now).build())
+                .toList(), 5_000);
+        personExportService = context.getBean(PersonExportService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ExportResultDto exportPersons(){
+        return personExportService.exportPersons(null);
+    }
+}
@@ -0,0 +1,108 @@
+package me.elaamiri.MockitoTutorial.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.config.ContentNegotiationConfig;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Jackson serialization of Person and PersonDto with the ObjectMapper settings Spring MVC uses,
+ * for each negotiated encoding (JSON, Smile, CBOR). The encoded and gzipped sizes of a page are logged at setup.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonSerializationBenchmark {
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectWriter personWriter;
+    private ObjectWriter personDtoWriter;
+    private ObjectWriter pageWriter;
+    private ObjectReader personDtoReader;
+
+    private Person person;
+    private PersonDto personDto;
+    private List<Person> page;
+    private byte[] encodedPersonDto;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper objectMapper = switch (format) {
+            case "smile" -> ContentNegotiationConfig.smileMapper(Jackson2ObjectMapperBuilder.json());
+            case "cbor" -> ContentNegotiationConfig.cborMapper(Jackson2ObjectMapperBuilder.json());
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        personWriter = objectMapper.writerFor(Person.class);
+        personDtoWriter = objectMapper.writerFor(PersonDto.class);
+        pageWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Person.class));
+        personDtoReader = objectMapper.readerFor(PersonDto.class);
+
+        Date now = new Date();
+        person = Person.builder().id(1L).firstName("Salima").lastName("Gaudin")
+                .birthDate(now).creationDate(now).lastModificationDate(now).build();
+        personDto = PersonDto.builder().id(1L).firstName("Salima").lastName("Gaudin")
+                .birthDate(now).creationDate(now).build();
+        page = LongStream.range(0, 100)
+                .mapToObj(id -> Person.builder().id(id).firstName("first" + id).lastName("last" + id)
+                        .birthDate(now).creationDate(now).lastModificationDate(now).build())
+                .toList();
+        encodedPersonDto = personDtoWriter.writeValueAsBytes(personDto);
+        byte[] encodedPage = pageWriter.writeValueAsBytes(page);
+        log.info("Encoded page | format:{} persons:{} bytes:{} gzipped:{}",
+                format, page.size(), encodedPage.length, gzip(encodedPage).length);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serializePerson() throws JsonProcessingException {
+        return personWriter.writeValueAsBytes(person);
+    }
+
+    @Benchmark
+    public byte[] serializePersonDto() throws JsonProcessingException {
+        return personDtoWriter.writeValueAsBytes(personDto);
+    }
+
+    // One default sized page of GET api/persons/
+    @Benchmark
+    public byte[] serializePersonPage() throws JsonProcessingException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    // Same page with server.compression (gzip) on top
+    @Benchmark
+    public byte[] serializePersonPageGzipped() throws IOException {
+        return gzip(pageWriter.writeValueAsBytes(page));
+    }
+
+    @Benchmark
+    public PersonDto deserializePersonDto() throws IOException {
+        return personDtoReader.readValue(encodedPersonDto);
+    }
+}
@@ -0,0 +1,89 @@
+package me.elaamiri.MockitoTutorial.benchmarks;
+
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * PersonService operations against embedded H2, with and without the id cache. The query cache is off: getAllPersons
+ * would otherwise measure its hits, not the read.
+ * Run with -prof gc to get the allocation rate per operation (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonServiceBenchmark {
+    @Param({"10000"})
+    int seededPersons;
+
+    @Param({"true", "false"})
+    boolean cacheEnabled;
+
+    private ConfigurableApplicationContext context;
+    private PersonService personService;
+    private long firstId;
+    private long lastId;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        context = BenchmarkApplication.start("persons.cache.enabled=" + cacheEnabled,
+                "persons.query-cache.enabled=false");
+        personService = context.getBean(PersonService.class);
+        personService.createPersons(IntStream.range(0, seededPersons)
+                .mapToObj(i -> PersonDto.builder().firstName("first" + i).lastName("last" + i).birthDate(new Date()).build())
+                .toList(), null);
+        List<Person> persons = context.getBean(PersonRepository.class).findAll();
+        firstId = persons.get(0).getId();
+        lastId = persons.get(persons.size() - 1).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        context.close();
+    }
+
+    private long randomId(){
+        return ThreadLocalRandom.current().nextLong(firstId, lastId + 1);
+    }
+
+    @Benchmark
+    public Person createPerson(){
+        return personService.createPerson(PersonDto.builder().firstName("created").lastName("person").birthDate(new Date()).build());
+    }
+
+    @Benchmark
+    public Optional<Person> getPersonById(){
+        return personService.getPersonById(randomId());
+    }
+
+    @Benchmark
+    public Person updatePerson(){
+        return personService.updatePerson(PersonDto.builder().id(randomId()).firstName("updated").lastName("person")
+                .birthDate(new Date()).creationDate(new Date()).build());
+    }
+
+    // Every seeded row in one call: the unbounded read GET api/persons/ used to do
+    @Benchmark
+    public List<Person> getAllPersons(){
+        return personService.getAllPersons();
+    }
+
+    // What GET api/persons/ does now: one keyset page of the default size
+    @Benchmark
+    public List<Person> getPersonsPage(){
+        return personService.getPersonsPage(randomId(), 100);
+    }
+}
@@ -2,8 +2,10 @@ package me.elaamiri.MockitoTutorial;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class MockitoTutorialApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,42 @@
+package me.elaamiri.MockitoTutorial.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/*
+Binary encodings for internal consumers, picked with the Accept / Content-Type header:
+application/x-jackson-smile and application/cbor. JSON stays the default.
+Both mappers start from the same builder as the JSON one (modules, naming), dates are written as epoch millis.
+ */
+@Configuration
+public class ContentNegotiationConfig {
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder){
+        return new MappingJackson2SmileHttpMessageConverter(smileMapper(builder));
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder){
+        return new MappingJackson2CborHttpMessageConverter(cborMapper(builder));
+    }
+
+    // Repeated field names and short string values (dates excluded) are back-references instead of copies
+    public static ObjectMapper smileMapper(Jackson2ObjectMapperBuilder builder){
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return builder.factory(factory).featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    }
+
+    public static ObjectMapper cborMapper(Jackson2ObjectMapperBuilder builder){
+        return builder.factory(new CBORFactory()).featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    }
+}
@@ -0,0 +1,16 @@
+package me.elaamiri.MockitoTutorial.config;
+
+import me.elaamiri.MockitoTutorial.metrics.SqlStatementCounter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+    // Counts the statements of each request, see SqlStatementsPerRequestFilter
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer(){
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+}
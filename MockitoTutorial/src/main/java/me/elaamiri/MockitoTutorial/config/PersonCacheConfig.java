@@ -0,0 +1,17 @@
+package me.elaamiri.MockitoTutorial.config;
+
+import me.elaamiri.MockitoTutorial.services.InProcessInvalidationChannel;
+import me.elaamiri.MockitoTutorial.services.PersonInvalidationChannel;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PersonCacheConfig {
+    // Single instance: nobody else to tell. Several instances declare a channel backed by their message broker
+    @Bean
+    @ConditionalOnMissingBean(PersonInvalidationChannel.class)
+    public PersonInvalidationChannel personInvalidationChannel(){
+        return new InProcessInvalidationChannel();
+    }
+}
@@ -0,0 +1,165 @@
+package me.elaamiri.MockitoTutorial.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tuning knobs of the persons API, bound from the {@code persons.*} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "persons")
+public class PersonProperties {
+    private Batch batch = new Batch();
+    private Cache cache = new Cache();
+    private QueryCache queryCache = new QueryCache();
+    private Search search = new Search();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Export export = new Export();
+    private BulkImport bulkImport = new BulkImport();
+    private Changes changes = new Changes();
+    private Lookup lookup = new Lookup();
+    private Routing routing = new Routing();
+    private Sharding sharding = new Sharding();
+    private Startup startup = new Startup();
+
+    @Data
+    public static class Batch {
+        // Records written per transaction, the persistence context is flushed and cleared after each chunk
+        private int chunkSize = 500;
+    }
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private long maximumSize = 100_000;
+        private Duration ttl = Duration.ofMinutes(10);
+        // Missing ids are remembered for a shorter time
+        private Duration negativeTtl = Duration.ofSeconds(30);
+        // Concurrent misses on the same id share one database fetch, cache enabled or not (bulk misses of the
+        // enabled cache always do, see PersonCache.getAll)
+        private boolean singleFlight = true;
+    }
+
+    @Data
+    public static class QueryCache {
+        // Serialized results of the full list and of the searches, dropped by any write
+        private boolean enabled = true;
+        private DataSize maximumSize = DataSize.ofMegabytes(64);
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Search {
+        // Trigram index used by the CONTAINS searches, built at startup
+        private boolean trigramIndexEnabled = true;
+        private int maxPageSize = 100;
+        // Deepest result reachable through paging
+        private int maxResults = 1000;
+    }
+
+    @Data
+    public static class WriteBehind {
+        // POST api/persons/ only queues the person and answers 202 with a ticket
+        private boolean enabled = false;
+        private int queueCapacity = 10_000;
+        // A batch is written as soon as it is full or when the oldest queued person waited this long
+        private int batchSize = 500;
+        private Duration flushInterval = Duration.ofMillis(50);
+        // How long a request waits for room in a full queue before it is rejected with 503
+        private Duration offerTimeout = Duration.ofMillis(500);
+        // Tickets can be looked up this long after they were issued
+        private Duration ticketTtl = Duration.ofMinutes(10);
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Export {
+        // Each export is written in its own sub-directory, one gzipped CSV part per id range
+        private Path directory = Path.of("exports");
+        private long rangeSize = 50_000;
+        // Ranges read at the same time, each one holds a connection of the pool
+        private int parallelism = 4;
+    }
+
+    @Data
+    public static class BulkImport {
+        // Files that can be imported (POST api/persons/import), their checkpoints and error reports are written next to them
+        private Path directory = Path.of("imports");
+        // Persons inserted per transaction
+        private int batchSize = 1000;
+        // Transactions running at the same time, the reader waits when as many batches are pending
+        private int parallelism = 4;
+        // Rejected rows returned in the response, all of them are in the <file>.errors.csv report
+        private int maxReportedErrors = 100;
+    }
+
+    @Data
+    public static class Changes {
+        // Younger changes are not returned yet: time for the read replicas to catch up before a consumer reads the
+        // changed persons, longer than persons.routing.max-replica-lag
+        private Duration settleTime = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Lookup {
+        // Ids per WHERE id IN (...) query of a bulk lookup
+        private int chunkSize = 500;
+    }
+
+    @Data
+    public static class Routing {
+        // Read-only transactions go to the replicas, the others to spring.datasource (the primary)
+        private boolean enabled = false;
+        private List<Database> replicas = new ArrayList<>();
+        // Longest replication delay expected: reads of a session stay on the primary this long after its last
+        // write, and cached persons are dropped again this long after a write
+        private Duration maxReplicaLag = Duration.ofSeconds(1);
+        private boolean readYourWrites = true;
+        // Request header naming the session of the caller, requests without it never read their own writes
+        private String sessionHeader = "X-Session-Id";
+        // A replica that failed to give a connection is left out this long
+        private Duration retryInterval = Duration.ofSeconds(10);
+        // How long a read waits for a connection of a replica before it fails over
+        private Duration connectionTimeout = Duration.ofSeconds(1);
+        private int replicaPoolSize = 10;
+    }
+
+    @Data
+    public static class Sharding {
+        // Databases of the sharded profile (ShardedPersonService), a person lives in shard id mod shards.size()
+        private List<Database> shards = new ArrayList<>();
+        private Placement placement = Placement.ID;
+        // With CREATION_DATE placement, the persons created within the same bucket share a shard
+        private Duration creationDateBucket = Duration.ofDays(1);
+        // Threads running the per shard queries of a scatter-gather
+        private int parallelism = 8;
+        // A scatter-gather fails when a shard has not answered within this time
+        private Duration queryTimeout = Duration.ofSeconds(10);
+        private int shardPoolSize = 10;
+
+        public enum Placement {
+            // New persons are spread evenly across the shards
+            ID,
+            CREATION_DATE
+        }
+    }
+
+    @Data
+    public static class Startup {
+        // Where the startup timings are written (JSON) once the first request is served, not written when unset
+        private Path report;
+    }
+
+    @Data
+    public static class Database {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,86 @@
+package me.elaamiri.MockitoTutorial.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import me.elaamiri.MockitoTutorial.routing.PrimaryDataSource;
+import me.elaamiri.MockitoTutorial.routing.ReadYourWrites;
+import me.elaamiri.MockitoTutorial.routing.ReadYourWritesFilter;
+import me.elaamiri.MockitoTutorial.routing.ReplicaPool;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read/write routing, {@code persons.routing.enabled=true}: the data source of JPA only takes its connection at the
+ * first statement, from the {@link ReplicaPool} when the transaction is read-only and from the primary
+ * ({@code spring.datasource}) otherwise. The replicas are {@code persons.routing.replicas[n].url/username/password}.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "persons.routing", name = "enabled", havingValue = "true")
+public class ReadWriteRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties){
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReadYourWrites readYourWrites(PersonProperties personProperties){
+        PersonProperties.Routing routing = personProperties.getRouting();
+        return new ReadYourWrites(routing.isReadYourWrites(), routing.getMaxReplicaLag());
+    }
+
+    @Bean
+    public ReplicaPool replicaPool(PersonProperties personProperties, HikariDataSource primaryDataSource,
+                                   ReadYourWrites readYourWrites, MeterRegistry meterRegistry){
+        PersonProperties.Routing routing = personProperties.getRouting();
+        List<PersonProperties.Database> replicas = routing.getReplicas();
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url(replicas.get(i).getUrl())
+                    .username(replicas.get(i).getUsername())
+                    .password(replicas.get(i).getPassword())
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setMaximumPoolSize(routing.getReplicaPoolSize());
+            replica.setConnectionTimeout(routing.getConnectionTimeout().toMillis());
+            // A replica down at startup is left out like any failing replica, it does not stop the application
+            replica.setInitializationFailTimeout(-1);
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            dataSources.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaPool(dataSources, primaryDataSource, readYourWrites, routing.getRetryInterval());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaPool replicaPool,
+                                 ReadYourWrites readYourWrites){
+        // The read-only flag of the transaction is set on the connection before its first statement
+        LazyConnectionDataSourceProxy dataSource =
+                new LazyConnectionDataSourceProxy(new PrimaryDataSource(primaryDataSource, readYourWrites));
+        dataSource.setReadOnlyDataSource(replicaPool);
+        return dataSource;
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReadYourWrites readYourWrites, PersonProperties personProperties){
+        return new ReadYourWritesFilter(readYourWrites, personProperties.getRouting().getSessionHeader());
+    }
+}
@@ -0,0 +1,43 @@
+package me.elaamiri.MockitoTutorial.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import me.elaamiri.MockitoTutorial.repositories.PersonShard;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shards of the sharded profile, {@code persons.sharding.shards[n].url/username/password}: one connection pool per
+ * shard (hikaricp.* metrics tagged pool=shard-n), the person table is created on each of them when missing.
+ */
+@Configuration
+@Profile("sharded")
+public class ShardingConfig {
+
+    @Bean
+    public List<PersonShard> personShards(PersonProperties personProperties, MeterRegistry meterRegistry){
+        PersonProperties.Sharding sharding = personProperties.getSharding();
+        List<PersonShard> shards = new ArrayList<>();
+        for (int i = 0; i < sharding.getShards().size(); i++) {
+            PersonProperties.Database database = sharding.getShards().get(i);
+            HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url(database.getUrl())
+                    .username(database.getUsername())
+                    .password(database.getPassword())
+                    .build();
+            dataSource.setPoolName("shard-" + i);
+            dataSource.setMaximumPoolSize(sharding.getShardPoolSize());
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            PersonShard shard = new PersonShard(i, dataSource);
+            shard.initSchema();
+            shards.add(shard);
+        }
+        return shards;
+    }
+}
@@ -1,32 +1,270 @@
 package me.elaamiri.MockitoTutorial.controllers;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.AllArgsConstructor;
-import lombok.NoArgsConstructor;
+import me.elaamiri.MockitoTutorial.dtos.BatchResultDto;
+import me.elaamiri.MockitoTutorial.dtos.CacheStatsDto;
+import me.elaamiri.MockitoTutorial.dtos.ChangeFeedDto;
+import me.elaamiri.MockitoTutorial.dtos.ChangeToken;
 import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.dtos.PersonLookupDto;
+import me.elaamiri.MockitoTutorial.dtos.PersonSummary;
+import me.elaamiri.MockitoTutorial.dtos.PersonVersion;
+import me.elaamiri.MockitoTutorial.dtos.SearchField;
+import me.elaamiri.MockitoTutorial.dtos.SearchMode;
+import me.elaamiri.MockitoTutorial.dtos.WriteTicketDto;
 import me.elaamiri.MockitoTutorial.entities.Person;
 import me.elaamiri.MockitoTutorial.services.PersonService;
+import me.elaamiri.MockitoTutorial.services.PersonWriteBehindQueue;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.UncheckedIOException;
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 @RestController
+// The reactive profile serves api/persons with ReactivePersonRouter, the sharded profile with ShardedPersonController
+@Profile("!reactive & !sharded")
 @RequestMapping("api/persons")
 @AllArgsConstructor
-@NoArgsConstructor
 public class PersonController {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_LOOKUP_IDS = 1000;
+    private static final Set<String> PERSON_FIELDS = Set.of("id", "firstName", "lastName", "birthDate",
+            "creationDate", "lastModificationDate", "version");
+
     private PersonService personService;
+    private ObjectMapper objectMapper;
+    private PersonWriteBehindQueue personWriteBehindQueue;
 
+    /*
+    Keyset pagination: ?after=<last id of the previous page>&limit=N
+    The next page, if any, is advertised in the Link header (rel="next")
+    ?fields=id,firstName,lastName,version reads the PersonSummary projection instead of the entities
+    The weak ETag of a page covers the ids and versions of its persons, If-None-Match is checked
+    against the versions only (304 without reading the persons)
+     */
     @GetMapping("/")
-    public List<Person> getAllPersons(){
-        return personService.getAllPersons();
+    public ResponseEntity<List<?>> getAllPersons(@RequestParam(defaultValue = "0") long after,
+                                                 @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                                 @RequestParam(required = false) String fields,
+                                                 WebRequest request){
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        boolean summary = isSummary(fields);
+        String etag = null;
+        if(Objects.nonNull(request.getHeader(HttpHeaders.IF_NONE_MATCH))){
+            etag = pageEtag(personService.getPersonVersionsPage(after, pageSize), summary);
+            if(Objects.nonNull(etag) && request.checkNotModified(etag)){
+                return null;
+            }
+        }
+        List<?> page;
+        Long lastId = null;
+        if(summary){
+            List<PersonSummary> summaries = personService.getPersonSummariesPage(after, pageSize);
+            if(!summaries.isEmpty()) lastId = summaries.get(summaries.size() - 1).id();
+            etag = pageEtag(summaries.stream().map(PersonVersion::of).toList(), true);
+            page = summaries;
+        } else {
+            List<Person> persons = personService.getPersonsPage(after, pageSize);
+            if(!persons.isEmpty()) lastId = persons.get(persons.size() - 1).getId();
+            etag = pageEtag(persons.stream().map(PersonVersion::of).toList(), false);
+            page = persons;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(Objects.nonNull(etag)) response.eTag(etag);
+        if(page.size() == pageSize){
+            // Absolute, with the other parameters (fields...) of this request
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", lastId)
+                    .replaceQueryParam("limit", pageSize)
+                    .build().toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page);
+    }
+
+    /*
+    Newline delimited JSON (one person per line) written while the rows are read,
+    so neither the server nor the client has to hold the whole table
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllPersons(@RequestParam(required = false) String fields){
+        StreamingResponseBody body = isSummary(fields)
+                ? ndjson(PersonSummary.class, personService::streamAllPersonSummaries)
+                : ndjson(Person.class, personService::streamAllPersons);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private <T> StreamingResponseBody ndjson(Class<T> type, Consumer<Consumer<T>> source){
+        ObjectWriter writer = objectMapper.writerFor(type)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return outputStream -> {
+            try (JsonGenerator generator = writer.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                source.accept(value -> {
+                    try {
+                        writer.writeValue(generator, value);
+                        generator.writeRaw('\n');
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+            }
+        };
+    }
+
+    /*
+    true when every requested field is part of the PersonSummary projection,
+    false when no field selection is given or when it needs the full person
+     */
+    private static boolean isSummary(String fields){
+        if(fields == null || fields.isBlank()) return false;
+        boolean summary = true;
+        for(String field : fields.split(",")){
+            String name = field.trim();
+            if(!PERSON_FIELDS.contains(name)){
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown person field: " + name);
+            }
+            summary &= PersonSummary.FIELDS.contains(name);
+        }
+        return summary;
+    }
+
+    /*
+    Paged name search: ?q=<keyword>&field=FIRST_NAME|LAST_NAME|ANY&mode=PREFIX|CONTAINS&page=0&size=20
+     */
+    @GetMapping("/search")
+    public List<Person> searchPersons(@RequestParam String q,
+                                      @RequestParam(defaultValue = "ANY") SearchField field,
+                                      @RequestParam(defaultValue = "PREFIX") SearchMode mode,
+                                      @RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "20") int size){
+        return personService.searchPersons(q, field, mode, page, size);
+    }
+
+    /*
+    Change feed: ?since=<next token of the previous call>&limit=N, no token to start from the beginning.
+    Deleted persons are reported with type DELETED and no person
+     */
+    @GetMapping("/changes")
+    public ChangeFeedDto getChanges(@RequestParam(required = false) String since,
+                                    @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit){
+        ChangeToken token;
+        try {
+            token = ChangeToken.parse(since);
+        } catch (IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid change token: " + since);
+        }
+        return personService.getChanges(token, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
     }
 
+    /*
+    Bulk get of up to MAX_LOOKUP_IDS ids in one call: POST a JSON array of ids, or GET ?ids=1,2,3
+    One entry per distinct id in request order, {"id":..,"found":false,"person":null} for a missing one
+     */
+    @PostMapping("/lookup")
+    public List<PersonLookupDto> lookupPersons(@RequestBody List<Long> ids){
+        if(ids.size() > MAX_LOOKUP_IDS){
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_LOOKUP_IDS + " ids per lookup");
+        }
+        return personService.lookupPersons(ids);
+    }
+
+    @GetMapping("/lookup")
+    public List<PersonLookupDto> lookupPersonsByQuery(@RequestParam List<Long> ids){
+        return lookupPersons(ids);
+    }
+
+    @GetMapping("/cache/stats")
+    public CacheStatsDto getCacheStats(){
+        return personService.getCacheStats();
+    }
+
+    // Full list and search results
+    @GetMapping("/cache/stats/queries")
+    public CacheStatsDto getQueryCacheStats(){
+        return personService.getQueryCacheStats();
+    }
+
+    // Hibernate second-level cache region of Person
+    @GetMapping("/cache/stats/entities")
+    public CacheStatsDto getSecondLevelCacheStats(){
+        return personService.getSecondLevelCacheStats();
+    }
+
+    /*
+    ETag (version) and Last-Modified of the person, If-None-Match / If-Modified-Since are checked
+    against its version alone (cached person or primary key lookup of 3 columns): 304 without reading it
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Person> getPerson(@PathVariable Long id){
-        return ResponseEntity.ok(personService.getPersonById(id).orElse(null));
+    public ResponseEntity<Person> getPerson(@PathVariable Long id, WebRequest request){
+        if(Objects.nonNull(request.getHeader(HttpHeaders.IF_NONE_MATCH))
+                || Objects.nonNull(request.getHeader(HttpHeaders.IF_MODIFIED_SINCE))){
+            Optional<PersonVersion> version = personService.getPersonVersion(id);
+            if(version.isPresent() && notModified(request, version.get())){
+                return null;
+            }
+        }
+        Optional<Person> person = personService.getPersonById(id);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        person.map(PersonVersion::of).ifPresent(version -> {
+            if(Objects.nonNull(version.version())) response.eTag(etag(version));
+            if(Objects.nonNull(version.lastModificationDate())) response.lastModified(lastModified(version));
+        });
+        return response.body(person.orElse(null));
+    }
+
+    // No version (a row written outside of this application): Last-Modified alone can tell, never the ETag
+    private static boolean notModified(WebRequest request, PersonVersion version){
+        if(Objects.isNull(version.version())){
+            return Objects.nonNull(version.lastModificationDate()) && request.checkNotModified(lastModified(version));
+        }
+        return request.checkNotModified(etag(version), lastModified(version));
+    }
+
+    private static String etag(PersonVersion version){
+        return "W/\"" + version.version() + "\"";
+    }
+
+    private static long lastModified(PersonVersion version){
+        return Objects.isNull(version.lastModificationDate()) ? -1 : version.lastModificationDate().getTime();
+    }
+
+    // FNV-1a over the (id, version) pairs: changes when a person of the page is written, added or removed.
+    // None when a person of the page has no version, its writes could not be told apart
+    private static String pageEtag(List<PersonVersion> versions, boolean summary){
+        long hash = 0xcbf29ce484222325L;
+        for (PersonVersion version : versions) {
+            if(Objects.isNull(version.version())){
+                return null;
+            }
+            hash = (hash ^ version.id()) * 0x100000001b3L;
+            hash = (hash ^ version.version()) * 0x100000001b3L;
+        }
+        return "W/\"" + (summary ? "s" : "p") + versions.size() + "-" + Long.toHexString(hash) + "\"";
     }
 
     @PostMapping("/")
@@ -35,10 +273,25 @@ public class PersonController {
     @ResponseStatus is Typically Used for Void Methods:
     It is most useful when a method does not return a ResponseEntity
      */
-    public ResponseEntity<Person> createPerson(@RequestBody PersonDto personDto){
+    /*
+    In write-behind mode (persons.write-behind.enabled) the person is only queued: 202 with a ticket,
+    its state is available at the Location (api/persons/pending/{handle})
+     */
+    public ResponseEntity<?> createPerson(@RequestBody PersonDto personDto){
+        if(personWriteBehindQueue.isEnabled()){
+            WriteTicketDto ticket = personWriteBehindQueue.submit(personDto);
+            URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/api/persons/pending/{handle}").buildAndExpand(ticket.getHandle()).toUri();
+            return ResponseEntity.accepted().location(location).body(ticket);
+        }
         return new ResponseEntity<>(personService.createPerson(personDto), HttpStatus.CREATED);
     }
 
+    @GetMapping("/pending/{handle}")
+    public ResponseEntity<WriteTicketDto> getWriteTicket(@PathVariable String handle){
+        return ResponseEntity.of(personWriteBehindQueue.getTicket(handle));
+    }
+
     @PutMapping("/")
     public ResponseEntity<Person> updatePerson(@RequestBody PersonDto personDto){
         return new ResponseEntity<>(personService.updatePerson(personDto), HttpStatus.OK);
@@ -48,4 +301,41 @@ public class PersonController {
     public ResponseEntity<Boolean> deletePerson(@PathVariable Long id){
         return new ResponseEntity<>(personService.deletePersonById(id), HttpStatus.OK);
     }
-}
\ No newline at end of file
+
+    /*
+    Bulk endpoints, the work is split in chunks of ?chunkSize= records (persons.batch.chunk-size by default),
+    each chunk is committed in its own transaction
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResultDto> createPersons(@RequestBody List<PersonDto> personDtos,
+                                                        @RequestParam(required = false) Integer chunkSize){
+        return new ResponseEntity<>(personService.createPersons(personDtos, chunkSize), HttpStatus.CREATED);
+    }
+
+    @PutMapping("/batch")
+    public ResponseEntity<BatchResultDto> updatePersons(@RequestBody List<PersonDto> personDtos,
+                                                        @RequestParam(required = false) Integer chunkSize){
+        return new ResponseEntity<>(personService.updatePersons(personDtos, chunkSize), HttpStatus.OK);
+    }
+
+    @DeleteMapping("/batch")
+    public ResponseEntity<BatchResultDto> deletePersons(@RequestBody List<Long> ids,
+                                                        @RequestParam(required = false) Integer chunkSize){
+        return new ResponseEntity<>(personService.deletePersonsByIds(ids, chunkSize), HttpStatus.OK);
+    }
+
+    // Write-behind queue full (backpressure) or shutting down
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ProblemDetail> handleRejected(RejectedExecutionException exception){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage()));
+    }
+
+    // Update based on a stale version of the person
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ProblemDetail> handleConflict(OptimisticLockingFailureException exception){
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, exception.getMessage()));
+    }
+}
@@ -0,0 +1,31 @@
+package me.elaamiri.MockitoTutorial.controllers;
+
+import lombok.AllArgsConstructor;
+import me.elaamiri.MockitoTutorial.dtos.ExportResultDto;
+import me.elaamiri.MockitoTutorial.services.PersonExportService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Date;
+
+@RestController
+@Profile("!reactive & !sharded")
+@RequestMapping("api/persons")
+@AllArgsConstructor
+public class PersonExportController {
+    private PersonExportService personExportService;
+
+    /*
+    Writes the persons to gzipped CSV files on the server disk (persons.export.directory),
+    ?since=2024-05-01T00:00:00Z only exports the persons modified since then
+     */
+    @PostMapping("/export")
+    public ExportResultDto exportPersons(@RequestParam(required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date since){
+        return personExportService.exportPersons(since);
+    }
+}
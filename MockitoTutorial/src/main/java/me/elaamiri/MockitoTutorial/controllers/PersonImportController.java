@@ -0,0 +1,37 @@
+package me.elaamiri.MockitoTutorial.controllers;
+
+import lombok.AllArgsConstructor;
+import me.elaamiri.MockitoTutorial.dtos.ImportFormat;
+import me.elaamiri.MockitoTutorial.dtos.ImportResultDto;
+import me.elaamiri.MockitoTutorial.services.PersonImportService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@Profile("!reactive & !sharded")
+@RequestMapping("api/persons")
+@AllArgsConstructor
+public class PersonImportController {
+    private PersonImportService personImportService;
+
+    /*
+    Imports a CSV or NDJSON file of the server disk (persons.bulk-import.directory): ?file=persons.csv
+    Resumes after the rows already imported by a previous run unless ?resume=false, rejected rows are in the response
+    and in <file>.errors.csv
+     */
+    @PostMapping("/import")
+    public ImportResultDto importPersons(@RequestParam String file,
+                                         @RequestParam(required = false) ImportFormat format,
+                                         @RequestParam(defaultValue = "true") boolean resume){
+        try {
+            return personImportService.importPersons(file, format, resume);
+        } catch (IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package me.elaamiri.MockitoTutorial.controllers;
+
+import lombok.AllArgsConstructor;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.services.ReactivePersonService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * WebFlux handlers of the reactive profile, routed by {@link ReactivePersonRouter}. Same requests and responses as
+ * the matching {@link PersonController} endpoints.
+ */
+@Component
+@Profile("reactive")
+@AllArgsConstructor
+public class ReactivePersonHandler {
+    // Rows requested from the database at a time by the stream, refilled when 3/4 of them were written out
+    static final int STREAM_PREFETCH = 256;
+
+    private ReactivePersonService reactivePersonService;
+
+    /*
+    Keyset pagination: ?after=<last id of the previous page>&limit=N, the next page is in the Link header
+     */
+    public Mono<ServerResponse> getAllPersons(ServerRequest request){
+        long after = longParam(request, "after", 0);
+        int pageSize = (int) Math.max(1, Math.min(longParam(request, "limit", PersonController.DEFAULT_PAGE_SIZE),
+                PersonController.MAX_PAGE_SIZE));
+        return reactivePersonService.getPersonsPage(after, pageSize).collectList().flatMap(page -> {
+            ServerResponse.BodyBuilder response = ServerResponse.ok().contentType(MediaType.APPLICATION_JSON);
+            if(page.size() == pageSize){
+                Long lastId = page.get(page.size() - 1).getId();
+                // Absolute, with the other parameters of this request
+                String next = UriComponentsBuilder.fromUri(request.uri())
+                        .replaceQueryParam("after", lastId)
+                        .replaceQueryParam("limit", pageSize)
+                        .build().toUriString();
+                response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+            }
+            return response.bodyValue(page);
+        });
+    }
+
+    /*
+    Newline delimited JSON written as the rows arrive. Demand flows back from the connection: when the client reads
+    slowly the socket stops being writable, no more rows are requested and the query waits, nothing piles up in memory
+     */
+    public Mono<ServerResponse> streamAllPersons(ServerRequest request){
+        Flux<Person> persons = reactivePersonService.streamAllPersons().limitRate(STREAM_PREFETCH);
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(persons, Person.class);
+    }
+
+    public Mono<ServerResponse> getPerson(ServerRequest request){
+        return reactivePersonService.getPersonById(longPathVariable(request, "id"))
+                .flatMap(person -> ServerResponse.ok().bodyValue(person))
+                // The blocking API answers 200 without a body as well
+                .switchIfEmpty(ServerResponse.ok().build());
+    }
+
+    public Mono<ServerResponse> createPerson(ServerRequest request){
+        return request.bodyToMono(PersonDto.class)
+                .flatMap(reactivePersonService::createPerson)
+                .flatMap(person -> ServerResponse.status(HttpStatus.CREATED).bodyValue(person));
+    }
+
+    public Mono<ServerResponse> updatePerson(ServerRequest request){
+        return request.bodyToMono(PersonDto.class)
+                .flatMap(reactivePersonService::updatePerson)
+                .flatMap(person -> ServerResponse.ok().bodyValue(person))
+                .switchIfEmpty(ServerResponse.ok().build())
+                // Update based on a stale version of the person
+                .onErrorResume(OptimisticLockingFailureException.class, exception -> ServerResponse.status(HttpStatus.CONFLICT)
+                        .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                        .bodyValue(ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, exception.getMessage())));
+    }
+
+    public Mono<ServerResponse> deletePerson(ServerRequest request){
+        return reactivePersonService.deletePersonById(longPathVariable(request, "id"))
+                .flatMap(deleted -> ServerResponse.ok().bodyValue(deleted));
+    }
+
+    private static long longParam(ServerRequest request, String name, long defaultValue){
+        return request.queryParam(name).map(value -> parseLong(name, value)).orElse(defaultValue);
+    }
+
+    private static long longPathVariable(ServerRequest request, String name){
+        return parseLong(name, request.pathVariable(name));
+    }
+
+    private static long parseLong(String name, String value){
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException exception) {
+            throw new ServerWebInputException("Invalid " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package me.elaamiri.MockitoTutorial.controllers;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Routes of the reactive profile: the core of the api/persons contract (pages, stream and single person CRUD).
+ */
+@Configuration
+@Profile("reactive")
+public class ReactivePersonRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> personRoutes(ReactivePersonHandler handler){
+        return RouterFunctions.route()
+                .path("/api/persons", builder -> builder
+                        .GET("/", handler::getAllPersons)
+                        .GET("/stream", handler::streamAllPersons)
+                        .GET("/{id}", handler::getPerson)
+                        .POST("/", handler::createPerson)
+                        .PUT("/", handler::updatePerson)
+                        .DELETE("/{id}", handler::deletePerson))
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package me.elaamiri.MockitoTutorial.controllers;
+
+import lombok.AllArgsConstructor;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.dtos.SearchField;
+import me.elaamiri.MockitoTutorial.dtos.SearchMode;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.services.ShardedPersonService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * api/persons of the sharded profile, backed by {@link ShardedPersonService}. Same requests and responses as the
+ * matching {@link PersonController} endpoints.
+ */
+@RestController
+@Profile("sharded")
+@AllArgsConstructor
+@RequestMapping("api/persons")
+public class ShardedPersonController {
+    private ShardedPersonService shardedPersonService;
+
+    /*
+    Keyset pagination: ?after=<last id of the previous page>&limit=N, the next page is in the Link header
+     */
+    @GetMapping("/")
+    public ResponseEntity<List<Person>> getAllPersons(@RequestParam(defaultValue = "0") long after,
+                                                      @RequestParam(defaultValue = "" + PersonController.DEFAULT_PAGE_SIZE) int limit){
+        int pageSize = Math.max(1, Math.min(limit, PersonController.MAX_PAGE_SIZE));
+        List<Person> page = shardedPersonService.getPersonsPage(after, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(page.size() == pageSize){
+            Long lastId = page.get(page.size() - 1).getId();
+            // Absolute, with the other parameters of this request
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", lastId)
+                    .replaceQueryParam("limit", pageSize)
+                    .build().toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page);
+    }
+
+    @GetMapping("/search")
+    public List<Person> searchPersons(@RequestParam String q,
+                                      @RequestParam(defaultValue = "ANY") SearchField field,
+                                      @RequestParam(defaultValue = "PREFIX") SearchMode mode,
+                                      @RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "20") int size){
+        return shardedPersonService.searchPersons(q, field, mode, page, size);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Person> getPerson(@PathVariable Long id){
+        return ResponseEntity.ok(shardedPersonService.getPersonById(id).orElse(null));
+    }
+
+    @PostMapping("/")
+    public ResponseEntity<Person> createPerson(@RequestBody PersonDto personDto){
+        return new ResponseEntity<>(shardedPersonService.createPerson(personDto), HttpStatus.CREATED);
+    }
+
+    @PutMapping("/")
+    public ResponseEntity<Person> updatePerson(@RequestBody PersonDto personDto){
+        return new ResponseEntity<>(shardedPersonService.updatePerson(personDto), HttpStatus.OK);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Boolean> deletePerson(@PathVariable Long id){
+        return new ResponseEntity<>(shardedPersonService.deletePersonById(id), HttpStatus.OK);
+    }
+
+    // Update based on a stale version of the person
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ProblemDetail> handleConflict(OptimisticLockingFailureException exception){
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, exception.getMessage()));
+    }
+
+    // A shard too slow to answer a page or a search
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity<ProblemDetail> handleTimeout(QueryTimeoutException exception){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage()));
+    }
+}
@@ -0,0 +1,14 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data @Builder
+public class BatchResultDto {
+    int requested;
+    int processed;
+    int chunkSize;
+    int chunks;
+    long elapsedMillis;
+    double recordsPerSecond;
+}
@@ -0,0 +1,16 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data @Builder
+public class CacheStatsDto {
+    long size;
+    long hitCount;
+    long negativeHitCount;
+    long missCount;
+    // Misses that waited for the load of a concurrent miss instead of querying the database
+    long sharedLoadCount;
+    long evictionCount;
+    double hitRate;
+}
@@ -0,0 +1,14 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+// next is the token of the following call (?since=next), hasMore tells whether it already has changes to return
+@Data @Builder
+public class ChangeFeedDto {
+    List<PersonChangeDto> changes;
+    String next;
+    boolean hasMore;
+}
@@ -0,0 +1,25 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+/**
+ * Watermark of the change feed: the change sequence and id of the last change returned, written as
+ * {@code <sequence>_<id>}. Changes are ordered by (sequence, id), ids being unique among persons and tombstones.
+ */
+public record ChangeToken(long sequence, long id) {
+    public static final ChangeToken START = new ChangeToken(0, 0);
+
+    public static ChangeToken parse(String token){
+        if(token == null || token.isBlank()){
+            return START;
+        }
+        int separator = token.indexOf('_');
+        if(separator < 0){
+            throw new IllegalArgumentException("Malformed change token: " + token);
+        }
+        return new ChangeToken(Long.parseLong(token.substring(0, separator)), Long.parseLong(token.substring(separator + 1)));
+    }
+
+    @Override
+    public String toString(){
+        return sequence + "_" + id;
+    }
+}
@@ -0,0 +1,5 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+public enum ChangeType {
+    UPSERTED, DELETED
+}
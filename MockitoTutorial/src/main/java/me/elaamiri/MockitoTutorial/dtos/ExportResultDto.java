@@ -0,0 +1,19 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data @Builder
+public class ExportResultDto {
+    String directory;
+    // Persons modified since this date only, null for a full export
+    Date since;
+    int ranges;
+    int files;
+    long rows;
+    long bytes;
+    long elapsedMillis;
+    double rowsPerSecond;
+}
@@ -0,0 +1,11 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// A rejected row of an import, rows are numbered from 1 (the CSV header is not counted)
+@Data @AllArgsConstructor
+public class ImportErrorDto {
+    long row;
+    String error;
+}
@@ -0,0 +1,23 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+/**
+ * Files read by POST api/persons/import, one person per record.
+ */
+public enum ImportFormat {
+    // RFC 4180, a header row names the columns: firstName, lastName, birthDate (others, like id, are ignored)
+    CSV,
+    // One JSON object per line with the same fields
+    NDJSON;
+
+    // From the file extension: .csv, .ndjson or .jsonl
+    public static ImportFormat of(String fileName){
+        String name = fileName.toLowerCase();
+        if(name.endsWith(".csv")){
+            return CSV;
+        }
+        if(name.endsWith(".ndjson") || name.endsWith(".jsonl")){
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Unknown import format of " + fileName + ", expected .csv, .ndjson or .jsonl");
+    }
+}
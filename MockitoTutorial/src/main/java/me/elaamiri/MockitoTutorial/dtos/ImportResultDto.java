@@ -0,0 +1,27 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data @Builder
+public class ImportResultDto {
+    String file;
+    ImportFormat format;
+    // Rows already imported by a previous run, skipped thanks to its checkpoint
+    long resumedAfterRow;
+    // Rows read by this run, imported or rejected
+    long rows;
+    long imported;
+    long rejected;
+    // Rows past the checkpoint imported by batches of a previous run that committed ahead of a failed one
+    long skipped;
+    int batches;
+    // Every rejected row, appended to by each run
+    String errorsFile;
+    // The first rejected rows of this run
+    List<ImportErrorDto> errors;
+    long elapsedMillis;
+    double rowsPerSecond;
+}
@@ -0,0 +1,18 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+import me.elaamiri.MockitoTutorial.entities.Person;
+
+import java.util.Date;
+
+// One entry of the change feed, person is null for a deletion
+@Data @Builder
+public class PersonChangeDto {
+    ChangeType type;
+    Long id;
+    // Commit order of the change, see ChangeToken
+    Long sequence;
+    Date at;
+    Person person;
+}
@@ -14,5 +14,7 @@ public class PersonDto {
     String lastName;
     Date birthDate;
     Date creationDate;
+    // Optional, when set the update is rejected if the person has changed since this version
+    Long version;
 
 }
@@ -0,0 +1,13 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+import me.elaamiri.MockitoTutorial.entities.Person;
+
+// One requested id of a bulk lookup, found is false (and person null) when there is no person with this id
+@Data @Builder
+public class PersonLookupDto {
+    Long id;
+    boolean found;
+    Person person;
+}
@@ -0,0 +1,12 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+import java.util.Set;
+
+/**
+ * Read-only projection of a person: id, names and version only (the version tags the pages of summaries).
+ * Built by JPQL constructor expressions, so no managed entity, dirty-checking snapshot or Date is created for it.
+ */
+public record PersonSummary(Long id, String firstName, String lastName, Long version) {
+    // Properties a client can ask for (?fields=) and still get this projection
+    public static final Set<String> FIELDS = Set.of("id", "firstName", "lastName", "version");
+}
@@ -0,0 +1,17 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+import me.elaamiri.MockitoTutorial.entities.Person;
+
+import java.util.Date;
+
+// What the conditional GETs compare: the version (ETag) and the time (Last-Modified) of a person, nothing else is read
+public record PersonVersion(Long id, Long version, Date lastModificationDate) {
+    public static PersonVersion of(Person person){
+        return new PersonVersion(person.getId(), person.getVersion(), person.getLastModificationDate());
+    }
+
+    // No modification date in the projection, enough for an ETag
+    public static PersonVersion of(PersonSummary summary){
+        return new PersonVersion(summary.id(), summary.version(), null);
+    }
+}
@@ -0,0 +1,5 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+public enum SearchField {
+    FIRST_NAME, LAST_NAME, ANY
+}
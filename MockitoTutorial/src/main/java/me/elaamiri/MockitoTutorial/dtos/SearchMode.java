@@ -0,0 +1,8 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+public enum SearchMode {
+    // name starts with the keyword (case sensitive), served by the name indexes of the person table
+    PREFIX,
+    // name contains the keyword (case insensitive), served by the in-memory trigram index
+    CONTAINS
+}
@@ -0,0 +1,5 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+public enum WriteStatus {
+    QUEUED, WRITTEN, FAILED
+}
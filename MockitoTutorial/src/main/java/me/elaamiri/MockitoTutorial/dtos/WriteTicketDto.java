@@ -0,0 +1,13 @@
+package me.elaamiri.MockitoTutorial.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Handle of a person accepted by the write-behind queue, personId is set once it is written
+@Data @Builder
+public class WriteTicketDto {
+    String handle;
+    WriteStatus status;
+    Long personId;
+    String error;
+}
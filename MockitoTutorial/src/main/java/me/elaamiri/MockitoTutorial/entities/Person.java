@@ -1,28 +1,52 @@
 package me.elaamiri.MockitoTutorial.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Date;
 
 @Entity
+// Name prefix searches (LIKE 'kw%') and the change feed are index range scans, the id makes the paging order stable
+@Table(indexes = {
+        @Index(name = "idx_person_first_name", columnList = "firstName, id"),
+        @Index(name = "idx_person_last_name", columnList = "lastName, id"),
+        @Index(name = "idx_person_change_sequence", columnList = "changeSequence, id")
+})
+// Second-level cache region, only used with hibernate.cache.use_second_level_cache=true
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Person.CACHE_REGION)
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Data
 public class Person {
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    public static final String CACHE_REGION = "persons";
+
+    // A pooled sequence (not IDENTITY) lets Hibernate assign ids before the INSERT, so inserts can be JDBC batched
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "person_seq")
+    @SequenceGenerator(name = "person_seq", sequenceName = "person_seq", allocationSize = 50)
     @Id
     Long id;
     String firstName;
     String lastName;
     @Temporal(TemporalType.DATE)
     Date birthDate;
-    @Temporal(TemporalType.DATE)
+    @Temporal(TemporalType.TIMESTAMP)
     Date creationDate;
-    @Temporal(TemporalType.DATE)
+    @Temporal(TemporalType.TIMESTAMP)
     Date lastModificationDate;
+    // Watermark of the change feed (GET api/persons/changes): number of the transaction that wrote the person last,
+    // in commit order. Only written by PersonChangeSequencer, right before the commit
+    @Column(insertable = false, updatable = false)
+    @JsonIgnore
+    Long changeSequence;
+    // Optimistic locking: bumped by every update, an update may require the version it was based on
+    @Version
+    Long version;
 }
@@ -0,0 +1,25 @@
+package me.elaamiri.MockitoTutorial.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Single row counting the committed write transactions, for the order of the change feed: see
+ * {@code PersonChangeSequencer}.
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class PersonChangeClock {
+    public static final long ID = 1;
+
+    @Id
+    Long id;
+    Long sequence;
+}
@@ -0,0 +1,59 @@
+package me.elaamiri.MockitoTutorial.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Row of the person table as read and written by R2DBC (reactive profile). The table is the one of {@link Person},
+ * created by Hibernate: R2DBC drivers map the date columns to java.time types only.
+ */
+@Table("person")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class PersonRow {
+    @Id
+    Long id;
+    String firstName;
+    String lastName;
+    LocalDate birthDate;
+    LocalDateTime creationDate;
+    LocalDateTime lastModificationDate;
+    @Version
+    Long version;
+
+    // Same types as a Person read by Hibernate, so both stacks render the same JSON
+    public Person toPerson(){
+        return Person.builder().id(id)
+                .firstName(firstName)
+                .lastName(lastName)
+                .birthDate(Objects.isNull(birthDate) ? null : java.sql.Date.valueOf(birthDate))
+                .creationDate(Objects.isNull(creationDate) ? null : Timestamp.valueOf(creationDate))
+                .lastModificationDate(Objects.isNull(lastModificationDate) ? null : Timestamp.valueOf(lastModificationDate))
+                .version(version)
+                .build();
+    }
+
+    // java.sql.Date does not support toInstant()
+    public static LocalDate localDate(Date date){
+        return Objects.isNull(date) ? null : LocalDate.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault());
+    }
+
+    public static LocalDateTime localDateTime(Date date){
+        return Objects.isNull(date) ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault());
+    }
+}
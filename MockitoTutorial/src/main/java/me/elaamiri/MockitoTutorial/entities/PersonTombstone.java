@@ -0,0 +1,41 @@
+package me.elaamiri.MockitoTutorial.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.util.Date;
+
+/**
+ * Deleted person, kept so the change feed can report the deletion.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_person_tombstone_change_sequence", columnList = "changeSequence, personId"))
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class PersonTombstone implements Persistable<Long> {
+    // Person ids come from a sequence and are never reused: one tombstone per person at most
+    @Id
+    Long personId;
+    @Temporal(TemporalType.TIMESTAMP)
+    Date deletedAt;
+    // Same as Person.changeSequence
+    @Column(insertable = false, updatable = false)
+    Long changeSequence;
+
+    @Override
+    public Long getId() {
+        return personId;
+    }
+
+    // Only ever inserted: save() persists right away instead of selecting the assigned id first
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,38 @@
+package me.elaamiri.MockitoTutorial.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Tells {@link StartupTimings} when the first request has been served. Actuator requests (health probes) do not
+ * count: the first-request phase is about the first request of a client.
+ */
+@Component
+public class FirstRequestFilter extends OncePerRequestFilter {
+    private final StartupTimings startupTimings;
+
+    public FirstRequestFilter(StartupTimings startupTimings){
+        this.startupTimings = startupTimings;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            startupTimings.firstRequestServed();
+        }
+    }
+}
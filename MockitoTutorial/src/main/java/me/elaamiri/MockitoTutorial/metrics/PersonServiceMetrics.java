@@ -0,0 +1,86 @@
+package me.elaamiri.MockitoTutorial.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public PersonService method into the {@code persons.service} timer, tagged with the operation
+ * (method name) and its outcome:
+ * <ul>
+ *     <li>success</li>
+ *     <li>not_found: null, false or an empty Optional returned (e.g. updatePerson, deletePersonById, getPersonById)</li>
+ *     <li>conflict: stale version rejected</li>
+ *     <li>failed: any other exception</li>
+ * </ul>
+ * The timer count per outcome is the counter of that outcome; p50/p99/p99.9 are published per operation.
+ */
+@Aspect
+@Component
+public class PersonServiceMetrics {
+    public static final String TIMER_NAME = "persons.service";
+
+    // Built once: a call only looks its timer up in the maps below, by operation then outcome
+    private final Meter.MeterProvider<Timer> timerProvider;
+    private final Map<String, Map<String, Timer>> timers = new ConcurrentHashMap<>();
+
+    public PersonServiceMetrics(MeterRegistry meterRegistry){
+        this.timerProvider = Timer.builder(TIMER_NAME)
+                .description("PersonService calls")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .withRegistry(meterRegistry);
+    }
+
+    @Around("execution(public * me.elaamiri.MockitoTutorial.services.PersonService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        String outcome = "failed";
+        try {
+            Object result = joinPoint.proceed();
+            outcome = outcome(result, ((MethodSignature) joinPoint.getSignature()).getReturnType());
+            return result;
+        } catch (OptimisticLockingFailureException exception) {
+            outcome = "conflict";
+            throw exception;
+        } finally {
+            timer(joinPoint.getSignature().getName(), outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String outcome(Object result, Class<?> returnType){
+        if(result == null && returnType != void.class){
+            return "not_found";
+        }
+        if(result instanceof Boolean found && !found){
+            return "not_found";
+        }
+        if(result instanceof Optional<?> optional && optional.isEmpty()){
+            return "not_found";
+        }
+        return "success";
+    }
+
+    private Timer timer(String operation, String outcome){
+        Map<String, Timer> byOutcome = timers.get(operation);
+        if(byOutcome == null){
+            byOutcome = timers.computeIfAbsent(operation, key -> new ConcurrentHashMap<>());
+        }
+        Timer timer = byOutcome.get(outcome);
+        if(timer == null){
+            timer = byOutcome.computeIfAbsent(outcome, key -> timerProvider.withTags("operation", operation, "outcome", key));
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,24 @@
+package me.elaamiri.MockitoTutorial.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, see SqlStatementsPerRequestFilter.
+ */
+public class SqlStatementCounter implements StatementInspector {
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    public static void reset(){
+        COUNT.get()[0] = 0;
+    }
+
+    public static int count(){
+        return COUNT.get()[0];
+    }
+}
@@ -0,0 +1,47 @@
+package me.elaamiri.MockitoTutorial.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Records the number of SQL statements each api/persons request ran into the
+ * {@code persons.http.sql.statements} distribution. Statements run by async work (the NDJSON stream)
+ * happen on another thread and are not counted.
+ */
+@Component
+public class SqlStatementsPerRequestFilter extends OncePerRequestFilter {
+    public static final String SUMMARY_NAME = "persons.http.sql.statements";
+
+    private final DistributionSummary statements;
+
+    public SqlStatementsPerRequestFilter(MeterRegistry meterRegistry){
+        this.statements = DistributionSummary.builder(SUMMARY_NAME)
+                .description("SQL statements per api/persons request")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/persons");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter.reset();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            statements.record(SqlStatementCounter.count());
+        }
+    }
+}
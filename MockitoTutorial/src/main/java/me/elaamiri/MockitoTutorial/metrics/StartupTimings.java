@@ -0,0 +1,143 @@
+package me.elaamiri.MockitoTutorial.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where the startup time goes, in milliseconds:
+ * <ul>
+ *     <li>jvm: JVM start until SpringApplication.run (class loading of the launcher, CDS helps here)</li>
+ *     <li>context-refresh: SpringApplication.run until the context is refreshed, the web server started</li>
+ *     <li>hibernate-bootstrap: building the EntityManagerFactory (entity scanning, metamodel), part of the refresh
+ *     unless lazy initialization pushes it to the first request</li>
+ *     <li>ready: JVM start until the application is ready (runners included)</li>
+ *     <li>first-request: JVM start until the first request is served, what a new replica takes to add capacity</li>
+ * </ul>
+ * Published as {@code persons.startup{phase}} gauges, logged, and written to {@code persons.startup.report} once the
+ * first request is served, together with how the application was started (lazy initialization, AOT, CDS archive).
+ */
+@Slf4j
+@Component
+@Lazy(false)
+public class StartupTimings implements HibernatePropertiesCustomizer, MeterBinder {
+    public static final String GAUGE_NAME = "persons.startup";
+
+    public record Report(boolean lazyInitialization, boolean aot, boolean classDataSharing, Map<String, Long> phases) {
+    }
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final PersonProperties personProperties;
+    private final ObjectMapper objectMapper;
+    private final boolean lazyInitialization;
+    private volatile long hibernateBootstrapStart;
+    private volatile boolean firstRequestServed;
+
+    public StartupTimings(PersonProperties personProperties, ObjectMapper objectMapper, Environment environment){
+        this.personProperties = personProperties;
+        this.objectMapper = objectMapper;
+        this.lazyInitialization = environment.getProperty("spring.main.lazy-initialization", Boolean.class, false);
+    }
+
+    private static long uptime(){
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    private synchronized void record(String phase, long millis){
+        phases.putIfAbsent(phase, millis);
+    }
+
+    // Called while the EntityManagerFactory is being configured, the observer is told when it is built
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateBootstrapStart = System.nanoTime();
+        hibernateProperties.put(AvailableSettings.SESSION_FACTORY_OBSERVER, new SessionFactoryObserver() {
+            @Override
+            public void sessionFactoryCreated(SessionFactory factory) {
+                record("hibernate-bootstrap", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - hibernateBootstrapStart));
+            }
+        });
+    }
+
+    @EventListener
+    public void started(ApplicationStartedEvent event){
+        long refresh = event.getTimeTaken().toMillis();
+        record("jvm", Math.max(0, uptime() - refresh));
+        record("context-refresh", refresh);
+    }
+
+    @EventListener
+    public void ready(ApplicationReadyEvent event){
+        record("ready", uptime());
+        log.info("Started: {}", report());
+    }
+
+    // See FirstRequestFilter, only the first call counts
+    public void firstRequestServed(){
+        if(firstRequestServed){
+            return;
+        }
+        synchronized (this) {
+            if(firstRequestServed){
+                return;
+            }
+            firstRequestServed = true;
+            record("first-request", uptime());
+        }
+        Report report = report();
+        log.info("First request served: {}", report);
+        Path path = personProperties.getStartup().getReport();
+        if(path != null){
+            try {
+                if(path.toAbsolutePath().getParent() != null){
+                    Files.createDirectories(path.toAbsolutePath().getParent());
+                }
+                objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), report);
+            } catch (IOException exception) {
+                log.warn("Startup report not written to {}", path, exception);
+            }
+        }
+    }
+
+    public synchronized Report report(){
+        boolean classDataSharing = ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(argument -> argument.startsWith("-XX:SharedArchiveFile"));
+        return new Report(lazyInitialization, AotDetector.useGeneratedArtifacts(), classDataSharing, new LinkedHashMap<>(phases));
+    }
+
+    private synchronized double millis(String phase){
+        return phases.getOrDefault(phase, Long.valueOf(-1)).doubleValue();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String phase : new String[]{"jvm", "context-refresh", "hibernate-bootstrap", "ready", "first-request"}) {
+            TimeGauge.builder(GAUGE_NAME, this, TimeUnit.MILLISECONDS, timings -> timings.millis(phase))
+                    .description("Startup phase (ready and first-request: since JVM start), -1 until the phase is over")
+                    .tag("phase", phase)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package me.elaamiri.MockitoTutorial.repositories;
+
+import me.elaamiri.MockitoTutorial.entities.PersonChangeClock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PersonChangeClockRepository extends JpaRepository<PersonChangeClock, Long> {
+    // Next number, the row stays locked until the transaction completes: 0 when the row is missing
+    @Modifying
+    @Query("update PersonChangeClock c set c.sequence = c.sequence + 1 where c.id = " + PersonChangeClock.ID)
+    int tick();
+}
@@ -1,13 +1,140 @@
 package me.elaamiri.MockitoTutorial.repositories;
 
+import jakarta.persistence.QueryHint;
 import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.entities.PersonChangeClock;
+import org.hibernate.jpa.HibernateHints;
+import me.elaamiri.MockitoTutorial.dtos.PersonSummary;
+import me.elaamiri.MockitoTutorial.dtos.PersonVersion;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PersonRepository extends JpaRepository<Person, Long> {
     List<Person> getPersonsByFirstNameContaining(String fnKeyword);
+
+    // Keyset (seek) pagination: WHERE id > :after ORDER BY id LIMIT :limit, served by the primary key index
+    List<Person> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    // Forward-only cursor, must be consumed inside a transaction and closed by the caller
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Person p order by p.id")
+    Stream<Person> streamAllOrderedById();
+
+    // Index friendly prefix searches (LIKE 'kw%'), no count query
+    List<Person> findByFirstNameStartingWith(String prefix, Pageable pageable);
+
+    List<Person> findByLastNameStartingWith(String prefix, Pageable pageable);
+
+    // Prefix search on either name: one range scan per name index, see PersonService#searchPersons
+    List<Person> findByFirstNameStartingWithOrderByIdAsc(String prefix, Limit limit);
+
+    List<Person> findByLastNameStartingWithOrderByIdAsc(String prefix, Limit limit);
+
+    // Full scans, only used for CONTAINS searches while the trigram index is not available
+    List<Person> findByFirstNameContainingIgnoreCase(String keyword, Pageable pageable);
+
+    List<Person> findByLastNameContainingIgnoreCase(String keyword, Pageable pageable);
+
+    List<Person> findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(String firstNameKeyword, String lastNameKeyword, Pageable pageable);
+
+    // Names only, no entity is loaded: the ?fields=id,firstName,lastName reads and the in-memory search index
+    @Query("select new me.elaamiri.MockitoTutorial.dtos.PersonSummary(p.id, p.firstName, p.lastName, p.version) "
+            + "from Person p where p.id > :after order by p.id")
+    List<PersonSummary> findSummariesByIdGreaterThan(@Param("after") Long after, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new me.elaamiri.MockitoTutorial.dtos.PersonSummary(p.id, p.firstName, p.lastName, p.version) "
+            + "from Person p order by p.id")
+    Stream<PersonSummary> streamAllSummaries();
+
+    @Query("select new me.elaamiri.MockitoTutorial.dtos.PersonSummary(p.id, p.firstName, p.lastName, p.version) "
+            + "from Person p where p.id in :ids")
+    List<PersonSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Conditional GETs: the version of a person, or of each person of a keyset page, without loading the entities
+    @Query("select new me.elaamiri.MockitoTutorial.dtos.PersonVersion(p.id, p.version, p.lastModificationDate) "
+            + "from Person p where p.id = :id")
+    Optional<PersonVersion> findVersionById(@Param("id") Long id);
+
+    @Query("select new me.elaamiri.MockitoTutorial.dtos.PersonVersion(p.id, p.version, p.lastModificationDate) "
+            + "from Person p where p.id > :after order by p.id")
+    List<PersonVersion> findVersionsByIdGreaterThan(@Param("after") Long after, Limit limit);
+
+    // Bounds of the id ranges of an export
+    @Query("select min(p.id) from Person p")
+    Long findMinId();
+
+    @Query("select max(p.id) from Person p")
+    Long findMaxId();
+
+    // One id range of an export, only the persons modified since the given date when there is one
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Person p where p.id between :from and :to "
+            + "and (:since is null or p.lastModificationDate >= :since) order by p.id")
+    Stream<Person> streamByIdBetween(@Param("from") Long from, @Param("to") Long to, @Param("since") Date since);
+
+    // Keyset read of the persons written after (sequence, afterId) in commit order, served by idx_person_change_sequence
+    @Query("select p from Person p where p.changeSequence > :sequence "
+            + "or (p.changeSequence = :sequence and p.id > :afterId) order by p.changeSequence, p.id")
+    List<Person> findChangedSince(@Param("sequence") Long sequence, @Param("afterId") Long afterId, Limit limit);
+
+    // Numbers the persons of the committing transaction with the clock it just ticked, see PersonChangeSequencer
+    @Modifying(flushAutomatically = true)
+    @Query("update Person p set p.changeSequence = (select c.sequence from PersonChangeClock c where c.id = "
+            + PersonChangeClock.ID + ") where p.id in :ids")
+    int updateChangeSequence(@Param("ids") Collection<Long> ids);
+
+    @Query("select p.id from Person p where p.id in :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // One DELETE ... WHERE id IN (...) statement, returns the number of deleted rows
+    @Transactional
+    @Modifying
+    @Query("delete from Person p where p.id in :ids")
+    int deleteAllByIdIn(Collection<Long> ids);
+
+    // Single statement writes, no read before: they return the number of affected rows (0 or 1)
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Person p set p.firstName = :firstName, p.lastName = :lastName, p.birthDate = :birthDate, "
+            + "p.creationDate = :creationDate, p.lastModificationDate = :lastModificationDate, p.version = coalesce(p.version, 0) + 1 "
+            + "where p.id = :id")
+    int updateById(@Param("id") Long id, @Param("firstName") String firstName, @Param("lastName") String lastName,
+                   @Param("birthDate") Date birthDate, @Param("creationDate") Date creationDate,
+                   @Param("lastModificationDate") Date lastModificationDate);
+
+    // Optimistic variant: only updates the given version of the person
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Person p set p.firstName = :firstName, p.lastName = :lastName, p.birthDate = :birthDate, "
+            + "p.creationDate = :creationDate, p.lastModificationDate = :lastModificationDate, p.version = coalesce(p.version, 0) + 1 "
+            + "where p.id = :id and p.version = :version")
+    int updateByIdAndVersion(@Param("id") Long id, @Param("version") Long version, @Param("firstName") String firstName,
+                             @Param("lastName") String lastName, @Param("birthDate") Date birthDate,
+                             @Param("creationDate") Date creationDate, @Param("lastModificationDate") Date lastModificationDate);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Person p where p.id = :id")
+    int removeById(@Param("id") Long id);
 }
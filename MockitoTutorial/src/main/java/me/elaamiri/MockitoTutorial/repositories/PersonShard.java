@@ -0,0 +1,148 @@
+package me.elaamiri.MockitoTutorial.repositories;
+
+import lombok.Getter;
+import me.elaamiri.MockitoTutorial.dtos.SearchField;
+import me.elaamiri.MockitoTutorial.dtos.SearchMode;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The person table of one shard of the sharded profile, over plain JDBC. Every list query returns its rows in the
+ * order the merge of the shards expects: by id, or by name then id for the prefix searches on one name.
+ */
+public class PersonShard implements AutoCloseable {
+    private static final String COLUMNS = "id, first_name, last_name, birth_date, creation_date, last_modification_date, version";
+
+    private static final RowMapper<Person> PERSON = (resultSet, row) -> Person.builder()
+            .id(resultSet.getLong("id"))
+            .firstName(resultSet.getString("first_name"))
+            .lastName(resultSet.getString("last_name"))
+            .birthDate(resultSet.getDate("birth_date"))
+            .creationDate(resultSet.getTimestamp("creation_date"))
+            .lastModificationDate(resultSet.getTimestamp("last_modification_date"))
+            .version(resultSet.getObject("version", Long.class))
+            .build();
+
+    @Getter
+    private final int index;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public PersonShard(int index, DataSource dataSource){
+        this.index = index;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    // Creates the table and the sequence when missing
+    public void initSchema(){
+        new ResourceDatabasePopulator(new ClassPathResource("schema-sharded.sql")).execute(dataSource);
+    }
+
+    public long nextSequenceValue(){
+        return Objects.requireNonNull(jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR person_seq", Long.class));
+    }
+
+    public Optional<Person> findById(long id){
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM person WHERE id = ?", PERSON, id).stream().findFirst();
+    }
+
+    public boolean existsById(long id){
+        return !jdbcTemplate.queryForList("SELECT 1 FROM person WHERE id = ?", Integer.class, id).isEmpty();
+    }
+
+    public List<Person> findAllOrderedById(){
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM person ORDER BY id", PERSON);
+    }
+
+    public List<Person> findPage(long after, int limit){
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM person WHERE id > ? ORDER BY id LIMIT ?", PERSON, after, limit);
+    }
+
+    /**
+     * The first {@code limit} matches of the keyword in this shard: PREFIX on one name ordered by that name then id,
+     * the other searches ordered by id.
+     */
+    public List<Person> search(String keyword, SearchField field, SearchMode mode, int limit){
+        if(mode == SearchMode.CONTAINS){
+            String pattern = "%" + escapeLike(keyword.toLowerCase(Locale.ROOT)) + "%";
+            return switch (field) {
+                case FIRST_NAME -> query("LOWER(first_name) LIKE ? ESCAPE '\\'", "id", limit, pattern);
+                case LAST_NAME -> query("LOWER(last_name) LIKE ? ESCAPE '\\'", "id", limit, pattern);
+                case ANY -> query("LOWER(first_name) LIKE ? ESCAPE '\\' OR LOWER(last_name) LIKE ? ESCAPE '\\'",
+                        "id", limit, pattern, pattern);
+            };
+        }
+        String pattern = escapeLike(keyword) + "%";
+        return switch (field) {
+            case FIRST_NAME -> query("first_name LIKE ? ESCAPE '\\'", "first_name, id", limit, pattern);
+            case LAST_NAME -> query("last_name LIKE ? ESCAPE '\\'", "last_name, id", limit, pattern);
+            case ANY -> query("first_name LIKE ? ESCAPE '\\' OR last_name LIKE ? ESCAPE '\\'", "id", limit, pattern, pattern);
+        };
+    }
+
+    private List<Person> query(String where, String orderBy, int limit, Object... parameters){
+        Object[] arguments = new Object[parameters.length + 1];
+        System.arraycopy(parameters, 0, arguments, 0, parameters.length);
+        arguments[parameters.length] = limit;
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM person WHERE " + where + " ORDER BY " + orderBy + " LIMIT ?",
+                PERSON, arguments);
+    }
+
+    private static String escapeLike(String keyword){
+        return keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public void insert(Person person){
+        jdbcTemplate.update("INSERT INTO person (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)",
+                person.getId(), person.getFirstName(), person.getLastName(), sqlDate(person.getBirthDate()),
+                timestamp(person.getCreationDate()), timestamp(person.getLastModificationDate()), person.getVersion());
+    }
+
+    /**
+     * Updates the person, only if it is at that version when a version is given. Returns the updated row count.
+     */
+    public int update(Person person, Long version){
+        String set = "UPDATE person SET first_name = ?, last_name = ?, birth_date = ?, creation_date = ?, "
+                + "last_modification_date = ?, version = version + 1 WHERE id = ?";
+        Object[] values = {person.getFirstName(), person.getLastName(), sqlDate(person.getBirthDate()),
+                timestamp(person.getCreationDate()), timestamp(person.getLastModificationDate()), person.getId()};
+        if(Objects.isNull(version)){
+            return jdbcTemplate.update(set, values);
+        }
+        Object[] withVersion = new Object[values.length + 1];
+        System.arraycopy(values, 0, withVersion, 0, values.length);
+        withVersion[values.length] = version;
+        return jdbcTemplate.update(set + " AND version = ?", withVersion);
+    }
+
+    public int deleteById(long id){
+        return jdbcTemplate.update("DELETE FROM person WHERE id = ?", id);
+    }
+
+    private static java.sql.Date sqlDate(Date date){
+        return Objects.isNull(date) ? null : new java.sql.Date(date.getTime());
+    }
+
+    private static Timestamp timestamp(Date date){
+        return Objects.isNull(date) ? null : new Timestamp(date.getTime());
+    }
+
+    @Override
+    public void close() throws Exception {
+        if(dataSource instanceof AutoCloseable closeable){
+            closeable.close();
+        }
+    }
+}
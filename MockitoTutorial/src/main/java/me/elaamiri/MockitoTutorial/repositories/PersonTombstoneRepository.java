@@ -0,0 +1,27 @@
+package me.elaamiri.MockitoTutorial.repositories;
+
+import me.elaamiri.MockitoTutorial.entities.PersonChangeClock;
+import me.elaamiri.MockitoTutorial.entities.PersonTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PersonTombstoneRepository extends JpaRepository<PersonTombstone, Long> {
+    // Keyset read of the deletions after (sequence, afterId) in commit order, served by idx_person_tombstone_change_sequence
+    @Query("select t from PersonTombstone t where t.changeSequence > :sequence "
+            + "or (t.changeSequence = :sequence and t.personId > :afterId) order by t.changeSequence, t.personId")
+    List<PersonTombstone> findDeletedSince(@Param("sequence") Long sequence, @Param("afterId") Long afterId, Limit limit);
+
+    // Numbers the tombstones of the committing transaction with the clock it just ticked, see PersonChangeSequencer
+    @Modifying(flushAutomatically = true)
+    @Query("update PersonTombstone t set t.changeSequence = (select c.sequence from PersonChangeClock c where c.id = "
+            + PersonChangeClock.ID + ") where t.personId in :ids")
+    int updateChangeSequence(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,53 @@
+package me.elaamiri.MockitoTutorial.repositories;
+
+import me.elaamiri.MockitoTutorial.entities.PersonRow;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking access to the person table, only enabled by the reactive profile (R2DBC is off otherwise).
+ * Same statements as {@link PersonRepository}: keyset pages, single statement updates and deletes.
+ */
+@Repository
+public interface ReactivePersonRepository extends R2dbcRepository<PersonRow, Long> {
+    @Query("select * from person where id > :after order by id limit :limit")
+    Flux<PersonRow> findPage(long after, int limit);
+
+    // Emitted as the rows are read, the driver fetches them as fast as the subscriber requests them
+    @Query("select * from person order by id")
+    Flux<PersonRow> streamAllOrderedById();
+
+    // Ids of the shared person_seq: this value is the upper bound of a block of Hibernate's pooled optimizer,
+    // which hands out the ids below it, so it is never given to a person inserted through JPA
+    @Query("select next value for person_seq")
+    Mono<Long> nextId();
+
+    @Modifying
+    @Query("update person set first_name = :firstName, last_name = :lastName, birth_date = :birthDate, "
+            + "creation_date = :creationDate, last_modification_date = :lastModificationDate, version = version + 1 "
+            + "where id = :id")
+    Mono<Integer> updateById(Long id, String firstName, String lastName, LocalDate birthDate,
+                             LocalDateTime creationDate, LocalDateTime lastModificationDate);
+
+    @Modifying
+    @Query("update person set first_name = :firstName, last_name = :lastName, birth_date = :birthDate, "
+            + "creation_date = :creationDate, last_modification_date = :lastModificationDate, version = version + 1 "
+            + "where id = :id and version = :version")
+    Mono<Integer> updateByIdAndVersion(Long id, Long version, String firstName, String lastName, LocalDate birthDate,
+                                       LocalDateTime creationDate, LocalDateTime lastModificationDate);
+
+    @Modifying
+    @Query("delete from person where id = :id")
+    Mono<Integer> removeById(Long id);
+
+    @Modifying
+    @Query("insert into person_tombstone (person_id, deleted_at) values (:personId, :deletedAt)")
+    Mono<Integer> insertTombstone(Long personId, LocalDateTime deletedAt);
+}
@@ -0,0 +1,31 @@
+package me.elaamiri.MockitoTutorial.routing;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The primary as the routing sees it: a connection taken for a transaction that is not read-only counts as a
+ * write of the current session (the connection is only taken at the first statement, once the transaction is
+ * known).
+ */
+public class PrimaryDataSource extends DelegatingDataSource {
+    private final ReadYourWrites readYourWrites;
+
+    public PrimaryDataSource(DataSource primary, ReadYourWrites readYourWrites){
+        super(primary);
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if(TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()){
+            readYourWrites.written();
+        }
+        return super.getConnection();
+    }
+}
@@ -0,0 +1,58 @@
+package me.elaamiri.MockitoTutorial.routing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Remembers the sessions that wrote recently: their reads go to the primary until the replicas have caught up,
+ * so a caller always reads what it has just written. The session of the current thread is set by
+ * {@link #open(String)} ({@link ReadYourWritesFilter} does it from a request header), threads without one always
+ * read from the replicas.
+ */
+public class ReadYourWrites {
+    private final boolean enabled;
+    private final ThreadLocal<String> session = new ThreadLocal<>();
+    // Sessions that wrote within the window
+    private final Cache<String, Boolean> writers;
+
+    public ReadYourWrites(boolean enabled, Duration window){
+        this.enabled = enabled;
+        this.writers = Caffeine.newBuilder().expireAfterWrite(window).build();
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Makes the session the one of the current thread until the returned scope is closed.
+     */
+    public Scope open(String sessionId){
+        String previous = session.get();
+        session.set(sessionId);
+        return () -> {
+            if(Objects.isNull(previous)){
+                session.remove();
+            } else {
+                session.set(previous);
+            }
+        };
+    }
+
+    // Each write of the session restarts its window
+    public void written(){
+        String current = session.get();
+        if(enabled && Objects.nonNull(current)){
+            writers.put(current, Boolean.TRUE);
+        }
+    }
+
+    public boolean mustReadPrimary(){
+        String current = session.get();
+        return enabled && Objects.nonNull(current) && Objects.nonNull(writers.getIfPresent(current));
+    }
+}
@@ -0,0 +1,37 @@
+package me.elaamiri.MockitoTutorial.routing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Runs each request in the session named by its {@code persons.routing.session-header} header, if any, so the
+ * reads that follow a write of the same caller see it.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    private final ReadYourWrites readYourWrites;
+    private final String sessionHeader;
+
+    public ReadYourWritesFilter(ReadYourWrites readYourWrites, String sessionHeader){
+        this.readYourWrites = readYourWrites;
+        this.sessionHeader = sessionHeader;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !StringUtils.hasText(request.getHeader(sessionHeader));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (ReadYourWrites.Scope ignored = readYourWrites.open(request.getHeader(sessionHeader))) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
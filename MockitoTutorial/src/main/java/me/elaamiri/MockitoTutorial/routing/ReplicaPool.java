@@ -0,0 +1,135 @@
+package me.elaamiri.MockitoTutorial.routing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where the read-only transactions take their connection: from the replicas, in turn. A replica that fails to
+ * give a connection is left out for {@code retry-interval} and then tried again. With no replica available, or
+ * when the session has to read its own writes ({@link ReadYourWrites}), the connection comes from the primary.
+ */
+@Slf4j
+public class ReplicaPool extends AbstractDataSource implements MeterBinder, AutoCloseable {
+    private final List<Replica> replicas;
+    private final DataSource primary;
+    private final ReadYourWrites readYourWrites;
+    private final long retryIntervalNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder failovers = new LongAdder();
+    private final LongAdder ownWrites = new LongAdder();
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private volatile long downUntil;
+        private volatile boolean down;
+
+        private Replica(String name, DataSource dataSource){
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    /**
+     * @param replicas replica data sources by name, the pool closes them when it is closed
+     */
+    public ReplicaPool(Map<String, DataSource> replicas, DataSource primary, ReadYourWrites readYourWrites,
+                       Duration retryInterval){
+        this.replicas = replicas.entrySet().stream().map(replica -> new Replica(replica.getKey(), replica.getValue())).toList();
+        this.primary = primary;
+        this.readYourWrites = readYourWrites;
+        this.retryIntervalNanos = retryInterval.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if(readYourWrites.mustReadPrimary()){
+            ownWrites.increment();
+            return primary.getConnection();
+        }
+        int count = replicas.size();
+        int start = count == 0 ? 0 : Math.floorMod(next.getAndIncrement(), count);
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if(replica.down && System.nanoTime() - replica.downUntil < 0){
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                if(replica.down){
+                    replica.down = false;
+                    log.info("Replica back | {}", replica.name);
+                }
+                replica.reads.increment();
+                return connection;
+            } catch (SQLException | RuntimeException exception) {
+                replica.failures.increment();
+                replica.downUntil = System.nanoTime() + retryIntervalNanos;
+                replica.down = true;
+                log.warn("Replica left out | {} {}", replica.name, exception.getMessage());
+            }
+        }
+        failovers.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections use the configured credentials");
+    }
+
+    // Names of the replicas currently given connections
+    public List<String> getAvailableReplicas(){
+        return replicas.stream()
+                .filter(replica -> !replica.down || System.nanoTime() - replica.downUntil >= 0)
+                .map(replica -> replica.name)
+                .toList();
+    }
+
+    // persons.routing.reads{target=replica-0...}: read-only connections by where they were taken
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas) {
+            FunctionCounter.builder("persons.routing.reads", replica.reads, LongAdder::sum)
+                    .tag("target", replica.name).tag("reason", "replica")
+                    .description("Read-only connections by data source")
+                    .register(registry);
+            FunctionCounter.builder("persons.routing.replica.failures", replica.failures, LongAdder::sum)
+                    .tag("replica", replica.name)
+                    .description("Connections a replica failed to give")
+                    .register(registry);
+        }
+        FunctionCounter.builder("persons.routing.reads", failovers, LongAdder::sum)
+                .tag("target", "primary").tag("reason", "failover")
+                .description("Read-only connections by data source")
+                .register(registry);
+        FunctionCounter.builder("persons.routing.reads", ownWrites, LongAdder::sum)
+                .tag("target", "primary").tag("reason", "read-your-writes")
+                .description("Read-only connections by data source")
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if(replica.dataSource instanceof AutoCloseable closeable){
+                closeable.close();
+            }
+        }
+    }
+}
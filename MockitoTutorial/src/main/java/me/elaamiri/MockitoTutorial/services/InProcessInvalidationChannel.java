@@ -0,0 +1,34 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link PersonInvalidationChannel} within one JVM: invalidations are delivered synchronously, on the publishing
+ * thread, to the listeners subscribed to this channel. Enough for a single instance; tests share one channel
+ * between several {@link PersonQueryCache}s to stand in for several instances.
+ */
+@Slf4j
+public class InProcessInvalidationChannel implements PersonInvalidationChannel {
+    private final List<Consumer<Invalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(Invalidation invalidation){
+        for (Consumer<Invalidation> listener : listeners) {
+            try {
+                listener.accept(invalidation);
+            } catch (RuntimeException exception) {
+                // A broken listener must not fail the write that published
+                log.warn("Invalidation listener failed | {}", exception.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<Invalidation> listener){
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,226 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.CacheStatsDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Bounded, in-process read-through cache of persons by id.
+ * Missing ids are cached too (as an empty Optional) with a shorter TTL.
+ * Cached persons are shared between callers and must be treated as read-only.
+ * <p>
+ * Concurrent misses on the same id share one database fetch ({@link SingleFlight}), also when the cache is
+ * disabled: a popular person invalidated by a write is read once, not once per waiting request.
+ */
+@Component
+@Slf4j
+public class PersonCache implements MeterBinder {
+    private final boolean enabled;
+    private final boolean singleFlight;
+    private final SingleFlight<Long, Optional<Person>> flights = new SingleFlight<>();
+    private final Cache<Long, Optional<Person>> cache;
+    private final LongAdder negativeHits = new LongAdder();
+
+    @Autowired
+    public PersonCache(PersonProperties personProperties){
+        this(personProperties, Ticker.systemTicker());
+    }
+
+    PersonCache(PersonProperties personProperties, Ticker ticker){
+        PersonProperties.Cache properties = personProperties.getCache();
+        long ttlNanos = properties.getTtl().toNanos();
+        long negativeTtlNanos = properties.getNegativeTtl().toNanos();
+        this.enabled = properties.isEnabled();
+        this.singleFlight = properties.isSingleFlight();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new Expiry<Long, Optional<Person>>() {
+                    @Override
+                    public long expireAfterCreate(Long id, Optional<Person> person, long currentTime) {
+                        return person.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long id, Optional<Person> person, long currentTime, long currentDuration) {
+                        return expireAfterCreate(id, person, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long id, Optional<Person> person, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached person, or loads it with the loader and caches the result (present or not).
+     * Concurrent misses on the same id wait for a single load. The load runs outside of the cache's locks, its
+     * result is not cached when the id was invalidated meanwhile.
+     */
+    public Optional<Person> get(long id, LongFunction<Optional<Person>> loader){
+        if(!enabled){
+            return singleFlight ? flights.load(id, loader::apply, (key, person) -> {}) : loader.apply(id);
+        }
+        if(!singleFlight){
+            Optional<Person> cached = cache.policy().getIfPresentQuietly(id);
+            if(cached != null && cached.isEmpty()){
+                negativeHits.increment();
+            }
+            // Caffeine holds the lock of the hash bin of the id while the loader runs
+            return cache.get(id, loader::apply);
+        }
+        Optional<Person> cached = cache.getIfPresent(id);
+        if(cached != null){
+            if(cached.isEmpty()){
+                negativeHits.increment();
+            }
+            return cached;
+        }
+        return flights.load(id, loader::apply, cache::put);
+    }
+
+    // The cached person, empty when it is not cached (or cached as missing); never loads
+    public Optional<Person> getIfCached(long id){
+        if(!enabled){
+            return Optional.empty();
+        }
+        Optional<Person> cached = cache.getIfPresent(id);
+        return Objects.isNull(cached) ? Optional.empty() : cached;
+    }
+
+    /**
+     * Bulk variant of {@link #get(long, LongFunction)}: the ids not cached are loaded with a single loader call,
+     * which must return an entry (present or empty) for each of them.
+     * <p>
+     * No lock is held while the loader runs, whatever persons.cache.single-flight: the misses always go through
+     * the flights, so that an id invalidated during the load is not cached with the row read before the write.
+     */
+    public Map<Long, Optional<Person>> getAll(Collection<Long> ids, Function<Set<Long>, Map<Long, Optional<Person>>> loader){
+        if(!enabled){
+            return singleFlight ? flights.loadAll(new LinkedHashSet<>(ids), loader, (key, person) -> {})
+                    : loader.apply(new LinkedHashSet<>(ids));
+        }
+        Map<Long, Optional<Person>> persons = new LinkedHashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long id : ids) {
+            Optional<Person> cached = cache.getIfPresent(id);
+            if(cached == null){
+                missing.add(id);
+                continue;
+            }
+            if(cached.isEmpty()){
+                negativeHits.increment();
+            }
+            persons.put(id, cached);
+        }
+        if(!missing.isEmpty()){
+            persons.putAll(flights.loadAll(missing, loader, cache::put));
+        }
+        return persons;
+    }
+
+    /**
+     * Drops the entry now and, when called inside a transaction, again once it has committed:
+     * a read that raced with the write and cached the old row is discarded as well.
+     */
+    public void invalidate(Long id){
+        if(Objects.nonNull(id)){
+            invalidateAll(List.of(id));
+        }
+    }
+
+    public void invalidateAll(Collection<Long> ids){
+        if(ids.isEmpty() || (!enabled && !singleFlight)){
+            return;
+        }
+        drop(ids);
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    drop(ids);
+                }
+            });
+        }
+    }
+
+    // Any person may have changed (written by another instance, which could not tell which ones)
+    public void invalidateAll(){
+        if(!enabled && !singleFlight){
+            return;
+        }
+        flights.forgetAll();
+        if(enabled){
+            cache.invalidateAll();
+        }
+    }
+
+    // The loads in flight are forgotten first: once a load publishes, the invalidation that follows drops it
+    private void drop(Collection<Long> ids){
+        ids.forEach(flights::forget);
+        if(enabled){
+            cache.invalidateAll(ids);
+        }
+    }
+
+    // Runs the pending maintenance (evictions are otherwise done asynchronously)
+    void cleanUp(){
+        cache.cleanUp();
+    }
+
+    // cache.gets (hit/miss), cache.evictions, cache.size... tagged cache=persons on the metrics endpoint
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "persons");
+        FunctionCounter.builder("cache.negative.hits", negativeHits, LongAdder::sum)
+                .description("Hits on ids cached as missing")
+                .tag("cache", "persons")
+                .register(registry);
+        FunctionCounter.builder("cache.shared.loads", flights, SingleFlight::sharedCount)
+                .description("Misses served by the database fetch of a concurrent miss on the same id")
+                .tag("cache", "persons")
+                .register(registry);
+    }
+
+    public CacheStatsDto stats(){
+        CacheStats stats = cache.stats();
+        return CacheStatsDto.builder()
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .negativeHitCount(negativeHits.sum())
+                .missCount(stats.missCount())
+                .sharedLoadCount(flights.sharedCount())
+                .evictionCount(stats.evictionCount())
+                .hitRate(stats.hitRate())
+                .build();
+    }
+}
@@ -0,0 +1,135 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.entities.PersonChangeClock;
+import me.elaamiri.MockitoTutorial.repositories.PersonChangeClockRepository;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import me.elaamiri.MockitoTutorial.repositories.PersonTombstoneRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Numbers the write transactions in commit order, for the change feed. Right before a write transaction commits, the
+ * single {@link PersonChangeClock} row is incremented and the persons and tombstones it wrote take the new value.
+ * <p>
+ * The clock row stays locked until the commit, so the next transaction gets its number only once this one is
+ * committed: a reader never sees a number while a smaller one is still to be committed, however long the
+ * transactions take and whatever the clocks of the instances. The lock is held for the two updates only.
+ */
+@Component
+@Slf4j
+class PersonChangeSequencer {
+    private final PersonChangeClockRepository personChangeClockRepository;
+    private final PersonRepository personRepository;
+    private final PersonTombstoneRepository personTombstoneRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    // What the current transaction wrote, bound to it until it completes
+    private static final class Written {
+        private final Set<Long> persons = new LinkedHashSet<>();
+        private final Set<Long> tombstones = new LinkedHashSet<>();
+    }
+
+    PersonChangeSequencer(PersonChangeClockRepository personChangeClockRepository, PersonRepository personRepository,
+                          PersonTombstoneRepository personTombstoneRepository, TransactionTemplate transactionTemplate,
+                          PersonProperties personProperties){
+        this.personChangeClockRepository = personChangeClockRepository;
+        this.personRepository = personRepository;
+        this.personTombstoneRepository = personTombstoneRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = personProperties.getLookup().getChunkSize();
+    }
+
+    // The first writes of a new database would otherwise race to create the row
+    @EventListener(ApplicationReadyEvent.class)
+    public void createClock(){
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if(!personChangeClockRepository.existsById(PersonChangeClock.ID)){
+                    personChangeClockRepository.saveAndFlush(new PersonChangeClock(PersonChangeClock.ID, 0L));
+                }
+            });
+        } catch (DataIntegrityViolationException exception) {
+            log.debug("Change clock created by another instance");
+        }
+    }
+
+    void written(Long personId){
+        if(Objects.nonNull(personId)){
+            written(List.of(personId));
+        }
+    }
+
+    // Persons created or updated by the current transaction
+    void written(Collection<Long> personIds){
+        personIds.stream().filter(Objects::nonNull).forEach(pending().persons::add);
+    }
+
+    void deleted(Long personId){
+        if(Objects.nonNull(personId)){
+            deleted(List.of(personId));
+        }
+    }
+
+    // Tombstones inserted by the current transaction
+    void deleted(Collection<Long> personIds){
+        personIds.stream().filter(Objects::nonNull).forEach(pending().tombstones::add);
+    }
+
+    private Written pending(){
+        if(!TransactionSynchronizationManager.isSynchronizationActive() || !TransactionSynchronizationManager.isActualTransactionActive()){
+            throw new IllegalStateException("Writes are numbered for the change feed when their transaction commits, there is none");
+        }
+        Written written = (Written) TransactionSynchronizationManager.getResource(this);
+        if(Objects.isNull(written)){
+            Written bound = new Written();
+            TransactionSynchronizationManager.bindResource(this, bound);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    number(bound);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PersonChangeSequencer.this);
+                }
+            });
+            written = bound;
+        }
+        return written;
+    }
+
+    private void number(Written written){
+        if(written.persons.isEmpty() && written.tombstones.isEmpty()){
+            return;
+        }
+        if(personChangeClockRepository.tick() == 0){
+            personChangeClockRepository.saveAndFlush(new PersonChangeClock(PersonChangeClock.ID, 1L));
+        }
+        inChunks(written.persons, personRepository::updateChangeSequence);
+        inChunks(written.tombstones, personTombstoneRepository::updateChangeSequence);
+    }
+
+    private void inChunks(Set<Long> ids, ToIntFunction<Collection<Long>> update){
+        List<Long> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            update.applyAsInt(all.subList(from, Math.min(from + chunkSize, all.size())));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.ExportResultDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk export of the person table for the analytics jobs, instead of paging through {@code GET api/persons/}.
+ * <p>
+ * The id span is cut into ranges of {@code persons.export.range-size} ids. The ranges are read in parallel on a
+ * fork-join pool of {@code persons.export.parallelism} threads, each one streaming its rows in its own read-only
+ * transaction (so over its own connection) into its own gzipped CSV part written through a {@link FileChannel}.
+ * Memory stays at one fetch per thread whatever the table size. Only the persons modified since a given date can be
+ * exported, for incremental exports.
+ */
+@Service
+@Slf4j
+public class PersonExportService {
+    static final String HEADER = "id,firstName,lastName,birthDate,creationDate,lastModificationDate,version";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PersonRepository personRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final PersonProperties.Export properties;
+
+    private record RangeResult(long rows, long bytes) {
+    }
+
+    public PersonExportService(PersonRepository personRepository, EntityManager entityManager,
+                               TransactionTemplate transactionTemplate, PersonProperties personProperties){
+        this.personRepository = personRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(Objects.requireNonNull(transactionTemplate.getTransactionManager()));
+        this.readOnlyTransaction.setReadOnly(true);
+        this.properties = personProperties.getExport();
+    }
+
+    /**
+     * Exports the persons (all of them when {@code since} is null) to a new directory under
+     * {@code persons.export.directory}, one {@code part-NNNNN.csv.gz} file per non empty id range.
+     */
+    public ExportResultDto exportPersons(Date since){
+        long start = System.nanoTime();
+        Path directory;
+        try {
+            Files.createDirectories(properties.getDirectory());
+            directory = Files.createTempDirectory(properties.getDirectory(), "persons-" + Instant.now().toEpochMilli() + "-");
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        List<Callable<RangeResult>> ranges = new ArrayList<>();
+        Long minId = personRepository.findMinId();
+        Long maxId = personRepository.findMaxId();
+        if(Objects.nonNull(minId)){
+            for (long from = minId; from <= maxId; from += properties.getRangeSize()) {
+                long rangeFrom = from;
+                long rangeTo = Math.min(from + properties.getRangeSize() - 1, maxId);
+                Path part = directory.resolve(String.format("part-%05d.csv.gz", ranges.size()));
+                ranges.add(() -> exportRange(rangeFrom, rangeTo, since, part));
+            }
+        }
+
+        long rows = 0;
+        long bytes = 0;
+        int files = 0;
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, properties.getParallelism()));
+        try {
+            for (Future<RangeResult> range : pool.invokeAll(ranges)) {
+                RangeResult result = range.get();
+                rows += result.rows();
+                bytes += result.bytes();
+                files += result.rows() > 0 ? 1 : 0;
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Export interrupted", exception);
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Export failed: " + exception.getCause().getMessage(), exception.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        ExportResultDto result = ExportResultDto.builder()
+                .directory(directory.toAbsolutePath().toString())
+                .since(since)
+                .ranges(ranges.size())
+                .files(files)
+                .rows(rows)
+                .bytes(bytes)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .rowsPerSecond(elapsedNanos == 0 ? 0 : rows * 1_000_000_000d / elapsedNanos)
+                .build();
+        log.info("Export done | rows:{} files:{} rows/sec:{} directory:{}", rows, files,
+                Math.round(result.getRowsPerSecond()), result.getDirectory());
+        return result;
+    }
+
+    private RangeResult exportRange(long from, long to, Date since, Path part) throws IOException {
+        long rows;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writer.write(HEADER);
+            writer.write('\n');
+            rows = Objects.requireNonNull(readOnlyTransaction.execute(status -> {
+                long written = 0;
+                try (Stream<Person> persons = personRepository.streamByIdBetween(from, to, since)) {
+                    for (Person person : (Iterable<Person>) persons::iterator) {
+                        writeRow(writer, person);
+                        entityManager.detach(person);
+                        written++;
+                    }
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+                return written;
+            }));
+        }
+        if(rows == 0){
+            Files.delete(part);
+            return new RangeResult(0, 0);
+        }
+        log.debug("Export range done | from:{} to:{} rows:{}", from, to, rows);
+        return new RangeResult(rows, Files.size(part));
+    }
+
+    static void writeRow(Writer writer, Person person) throws IOException {
+        writer.write(String.valueOf(person.getId()));
+        writer.write(',');
+        writer.write(csv(person.getFirstName()));
+        writer.write(',');
+        writer.write(csv(person.getLastName()));
+        writer.write(',');
+        writer.write(date(person.getBirthDate()));
+        writer.write(',');
+        writer.write(timestamp(person.getCreationDate()));
+        writer.write(',');
+        writer.write(timestamp(person.getLastModificationDate()));
+        writer.write(',');
+        writer.write(Objects.isNull(person.getVersion()) ? "" : String.valueOf(person.getVersion()));
+        writer.write('\n');
+    }
+
+    // RFC 4180 quoting, only when needed
+    static String csv(String value){
+        if(Objects.isNull(value)){
+            return "";
+        }
+        if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0){
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // A DATE column has no time zone: the calendar day, as stored (ISO 8601, e.g. 1990-05-17)
+    private static String date(Date date){
+        if(Objects.isNull(date)){
+            return "";
+        }
+        if(date instanceof java.sql.Date sqlDate){
+            return sqlDate.toLocalDate().toString();
+        }
+        return new java.sql.Date(date.getTime()).toLocalDate().toString();
+    }
+
+    // java.sql.Date does not support toInstant()
+    private static String timestamp(Date date){
+        return Objects.isNull(date) ? "" : Instant.ofEpochMilli(date.getTime()).toString();
+    }
+}
@@ -0,0 +1,650 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.ImportErrorDto;
+import me.elaamiri.MockitoTutorial.dtos.ImportFormat;
+import me.elaamiri.MockitoTutorial.dtos.ImportResultDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of persons from CSV or NDJSON files of the server disk ({@code persons.bulk-import.directory}),
+ * instead of one {@code POST api/persons/} per person.
+ * <p>
+ * A single reader goes through the file with buffered {@link FileChannel} reads, splits it into records at the
+ * newline bytes (outside of CSV quotes) and parses each record straight into a {@link Person}. Valid persons are
+ * grouped into batches of {@code batch-size}, each inserted in its own transaction by one of {@code parallelism}
+ * threads. At most twice as many batches are pending, so memory stays the same whatever the file size.
+ * <p>
+ * Once every batch up to a row is committed, the byte offset after that row is written to
+ * {@code <file>.checkpoint}: an import that failed or was stopped resumes from there, and running it again once
+ * done imports nothing (or only the rows appended to the file since). The batches committed past that offset (out
+ * of order, e.g. after a failed one) are listed in the checkpoint too and skipped by the resumed import, so no row
+ * is inserted twice. Rejected rows are appended to {@code <file>.errors.csv}, with their row number and the reason.
+ */
+@Service
+@Slf4j
+public class PersonImportService {
+    public static final String ROWS_COUNTER = "persons.import.rows";
+    static final int MAX_RECORD_BYTES = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final long PROGRESS_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final PersonService personService;
+    private final PersonProperties.BulkImport properties;
+    private final Counter importedRows;
+    private final Counter rejectedRows;
+    // Files being imported, a second import of the same file would insert its rows twice
+    private final Set<Path> running = ConcurrentHashMap.newKeySet();
+
+    record Checkpoint(long offset, long row) {
+    }
+
+    // Byte range of a batch committed past the checkpoint offset, its rows must not be imported again
+    record Range(long start, long end) {
+    }
+
+    // What a checkpoint file holds: the offset every row before is imported, and the batches committed after it
+    record Resume(Checkpoint checkpoint, List<Range> committed) {
+        static final Resume START = new Resume(new Checkpoint(0, 0), List.of());
+
+        // The committed range a record starting at this offset belongs to, if any
+        Range committedAt(long offset){
+            for (Range range : committed) {
+                if(offset >= range.start() && offset < range.end()){
+                    return range;
+                }
+            }
+            return null;
+        }
+    }
+
+    // A record of the file, tooLong when it was cut at MAX_RECORD_BYTES
+    record RawRow(String text, boolean tooLong) {
+    }
+
+    private record Batch(int sequence, List<Person> persons, Checkpoint start, Checkpoint end) {
+    }
+
+    public PersonImportService(PersonService personService, PersonProperties personProperties, MeterRegistry meterRegistry){
+        this.personService = personService;
+        this.properties = personProperties.getBulkImport();
+        this.importedRows = Counter.builder(ROWS_COUNTER).description("Rows read by the bulk imports")
+                .tag("outcome", "imported").register(meterRegistry);
+        this.rejectedRows = Counter.builder(ROWS_COUNTER).description("Rows read by the bulk imports")
+                .tag("outcome", "rejected").register(meterRegistry);
+    }
+
+    /**
+     * Imports a file of {@code persons.bulk-import.directory}, in the given format (from its extension when null).
+     * With {@code resume}, starts after the rows its checkpoint says are already imported, otherwise from the
+     * first row with a new error report.
+     */
+    public ImportResultDto importPersons(String fileName, ImportFormat format, boolean resume){
+        Path directory = properties.getDirectory().toAbsolutePath().normalize();
+        Path file = directory.resolve(fileName).normalize();
+        if(!file.startsWith(directory) || !Files.isRegularFile(file)){
+            throw new IllegalArgumentException("No file " + fileName + " in the import directory");
+        }
+        ImportFormat fileFormat = Objects.isNull(format) ? ImportFormat.of(fileName) : format;
+        if(!running.add(file)){
+            throw new IllegalArgumentException(fileName + " is already being imported");
+        }
+        try {
+            return importFile(file, fileFormat, resume);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            running.remove(file);
+        }
+    }
+
+    private ImportResultDto importFile(Path file, ImportFormat format, boolean resume) throws IOException {
+        long start = System.nanoTime();
+        Path checkpointFile = file.resolveSibling(file.getFileName() + ".checkpoint");
+        Path errorsFile = file.resolveSibling(file.getFileName() + ".errors.csv");
+        Resume previous = resume ? readCheckpoint(checkpointFile, Files.size(file)) : Resume.START;
+        Checkpoint checkpoint = previous.checkpoint();
+        if(!resume){
+            Files.deleteIfExists(errorsFile);
+        } else {
+            truncateErrorReport(errorsFile, checkpoint.row());
+        }
+
+        int parallelism = Math.max(1, properties.getParallelism());
+        int batchSize = Math.max(1, properties.getBatchSize());
+        Progress progress = new Progress(file, checkpointFile, previous);
+        Semaphore pending = new Semaphore(2 * parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        List<ImportErrorDto> errors = new ArrayList<>();
+        long rows = 0;
+        long rejected = 0;
+        long skipped = 0;
+        int sequence = 0;
+        int batches = 0;
+        Writer errorWriter = null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            RecordReader reader = new RecordReader(channel, format == ImportFormat.CSV);
+            CsvColumns columns = null;
+            if(format == ImportFormat.CSV){
+                RawRow header = reader.next();
+                if(Objects.nonNull(header) && header.tooLong()){
+                    throw new IllegalArgumentException("The CSV header is longer than " + MAX_RECORD_BYTES + " bytes");
+                }
+                columns = Objects.isNull(header) ? null : CsvColumns.of(csvFields(header.text()));
+            }
+            reader.seek(Math.max(checkpoint.offset(), reader.position()));
+
+            List<Person> persons = new ArrayList<>(batchSize);
+            Checkpoint batchStart = new Checkpoint(reader.position(), checkpoint.row());
+            long recordStart = reader.position();
+            for (RawRow record = reader.next(); Objects.nonNull(record) && Objects.isNull(progress.failure);
+                 recordStart = reader.position(), record = reader.next()) {
+                long row = checkpoint.row() + rows + skipped + 1;
+                Range committed = previous.committedAt(recordStart);
+                if(Objects.nonNull(committed)){
+                    // Imported by the previous run: the batch read so far ends here, the range counts as done.
+                    // Its rejections were cut from the report with the rows after the checkpoint, they are reported again
+                    try {
+                        person(record, format, columns);
+                    } catch (IllegalArgumentException exception) {
+                        errorWriter = report(errorWriter, errorsFile, row, exception.getMessage());
+                    }
+                    if(recordStart > batchStart.offset()){
+                        Checkpoint end = new Checkpoint(recordStart, row - 1);
+                        submit(executor, pending, progress, new Batch(sequence++, persons, batchStart, end));
+                        batches++;
+                        persons = new ArrayList<>(batchSize);
+                        batchStart = end;
+                    }
+                    skipped++;
+                    if(reader.position() >= committed.end()){
+                        Checkpoint end = new Checkpoint(reader.position(), row);
+                        progress.done(new Batch(sequence++, List.of(), batchStart, end), 0);
+                        batchStart = end;
+                    }
+                    continue;
+                }
+                rows++;
+                try {
+                    persons.add(person(record, format, columns));
+                } catch (IllegalArgumentException exception) {
+                    rejected++;
+                    rejectedRows.increment();
+                    if(errors.size() < properties.getMaxReportedErrors()){
+                        errors.add(new ImportErrorDto(row, exception.getMessage()));
+                    }
+                    errorWriter = report(errorWriter, errorsFile, row, exception.getMessage());
+                }
+                if(persons.size() == batchSize){
+                    Checkpoint end = new Checkpoint(reader.position(), row);
+                    submit(executor, pending, progress, new Batch(sequence++, persons, batchStart, end));
+                    batches++;
+                    persons = new ArrayList<>(batchSize);
+                    batchStart = end;
+                }
+            }
+            if(Objects.isNull(progress.failure) && reader.position() > batchStart.offset()){
+                Checkpoint end = new Checkpoint(reader.position(), checkpoint.row() + rows + skipped);
+                submit(executor, pending, progress, new Batch(sequence++, persons, batchStart, end));
+                batches++;
+            }
+            // Every permit back: no batch pending anymore
+            pending.acquire(2 * parallelism);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", exception);
+        } finally {
+            executor.shutdownNow();
+            if(Objects.nonNull(errorWriter)){
+                errorWriter.close();
+            }
+        }
+        if(Objects.nonNull(progress.failure)){
+            throw new IllegalStateException("Import of " + file.getFileName() + " failed, rows up to " + progress.committed.row()
+                    + " are imported and a resumed import starts after them: " + progress.failure.getMessage(), progress.failure);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        ImportResultDto result = ImportResultDto.builder()
+                .file(file.toString())
+                .format(format)
+                .resumedAfterRow(checkpoint.row())
+                .rows(rows)
+                .imported(progress.imported)
+                .rejected(rejected)
+                .skipped(skipped)
+                .batches(batches)
+                .errorsFile(rejected > 0 || Files.exists(errorsFile) ? errorsFile.toString() : null)
+                .errors(errors)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .rowsPerSecond(elapsedNanos == 0 ? 0 : rows * 1_000_000_000d / elapsedNanos)
+                .build();
+        log.info("Import done | file:{} rows:{} imported:{} rejected:{} rows/sec:{}", file.getFileName(), rows,
+                result.getImported(), rejected, Math.round(result.getRowsPerSecond()));
+        return result;
+    }
+
+    private void submit(ExecutorService executor, Semaphore pending, Progress progress, Batch batch) throws InterruptedException {
+        pending.acquire();
+        executor.execute(() -> {
+            try {
+                int imported = batch.persons().isEmpty() ? 0 : personService.importPersons(batch.persons());
+                importedRows.increment(imported);
+                progress.done(batch, imported);
+            } catch (Exception exception) {
+                progress.failed(exception);
+            } finally {
+                pending.release();
+            }
+        });
+    }
+
+    private static Person person(RawRow record, ImportFormat format, CsvColumns columns){
+        if(record.tooLong()){
+            throw new IllegalArgumentException("Row longer than " + MAX_RECORD_BYTES + " bytes");
+        }
+        return format == ImportFormat.CSV ? columns.person(record.text()) : ndjsonPerson(record.text());
+    }
+
+    // Appends the rejection to the report, opened on the first one
+    private static Writer report(Writer errorWriter, Path errorsFile, long row, String error) throws IOException {
+        Writer writer = Objects.isNull(errorWriter) ? openErrorReport(errorsFile) : errorWriter;
+        writer.write(row + "," + PersonExportService.csv(error) + "\n");
+        return writer;
+    }
+
+    /*
+    A resumed import reads the rows after the checkpoint again: the rejections the previous run reported for them are
+    cut off, so each rejected row is reported once. A line cut short by a crash is cut off too, or ended when kept
+     */
+    static void truncateErrorReport(Path errorsFile, long afterRow) throws IOException {
+        if(!Files.exists(errorsFile)){
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(errorsFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            RecordReader reader = new RecordReader(channel, true);
+            if(Objects.isNull(reader.next())){
+                channel.truncate(0);
+            } else {
+                long end = reader.position();
+                for (RawRow line = reader.next(); Objects.nonNull(line) && reportedRow(line) <= afterRow; line = reader.next()) {
+                    end = reader.position();
+                }
+                channel.truncate(end);
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.read(last, end - 1);
+                if(last.get(0) != '\n'){
+                    channel.write(ByteBuffer.wrap(new byte[]{'\n'}), end);
+                }
+            }
+        }
+        if(Files.size(errorsFile) == 0){
+            Files.delete(errorsFile);
+        }
+    }
+
+    private static long reportedRow(RawRow line){
+        String text = Objects.toString(line.text(), "");
+        int comma = text.indexOf(',');
+        try {
+            return Long.parseLong(comma < 0 ? text : text.substring(0, comma));
+        } catch (NumberFormatException exception) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static Writer openErrorReport(Path errorsFile) throws IOException {
+        boolean created = !Files.exists(errorsFile);
+        Writer writer = new BufferedWriter(Files.newBufferedWriter(errorsFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_SIZE);
+        if(created){
+            writer.write("row,error\n");
+        }
+        return writer;
+    }
+
+    static Resume readCheckpoint(Path checkpointFile, long fileSize) throws IOException {
+        if(!Files.exists(checkpointFile)){
+            return Resume.START;
+        }
+        Properties values = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+            values.load(reader);
+        }
+        Checkpoint checkpoint = new Checkpoint(Long.parseLong(values.getProperty("offset", "0")),
+                Long.parseLong(values.getProperty("row", "0")));
+        List<Range> committed = new ArrayList<>();
+        for (String range : values.getProperty("committed", "").split(",")) {
+            if(!range.isBlank()){
+                int dash = range.indexOf('-');
+                committed.add(new Range(Long.parseLong(range.substring(0, dash).strip()), Long.parseLong(range.substring(dash + 1).strip())));
+            }
+        }
+        if(checkpoint.offset() > fileSize || committed.stream().anyMatch(range -> range.end() > fileSize)){
+            log.warn("Checkpoint {} is past the end of the file, it was replaced: importing it from the start", checkpointFile);
+            return Resume.START;
+        }
+        return new Resume(checkpoint, List.copyOf(committed));
+    }
+
+    // Written to a temporary file then moved, a crash never leaves half a checkpoint
+    static void writeCheckpoint(Path checkpointFile, Resume resume) throws IOException {
+        Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        StringBuilder text = new StringBuilder()
+                .append("offset=").append(resume.checkpoint().offset()).append('\n')
+                .append("row=").append(resume.checkpoint().row()).append('\n');
+        if(!resume.committed().isEmpty()){
+            text.append("committed=").append(resume.committed().stream()
+                    .map(range -> range.start() + "-" + range.end()).collect(Collectors.joining(","))).append('\n');
+        }
+        Files.writeString(temporary, text, StandardCharsets.UTF_8);
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+    Batches commit out of order: the checkpoint offset only moves past a batch once all the batches before it are
+    committed, the ones committed ahead of it are listed in the checkpoint. So are the ranges a resumed import skips,
+    until the offset moves past them.
+     */
+    private static final class Progress {
+        private final Path file;
+        private final Path checkpointFile;
+        private final List<Range> previouslyCommitted;
+        private final TreeMap<Integer, Batch> done = new TreeMap<>();
+        private int next;
+        private Checkpoint committed;
+        private long imported;
+        private long lastLog = System.nanoTime();
+        private volatile Exception failure;
+
+        private Progress(Path file, Path checkpointFile, Resume previous){
+            this.file = file;
+            this.checkpointFile = checkpointFile;
+            this.previouslyCommitted = previous.committed();
+            this.committed = previous.checkpoint();
+        }
+
+        synchronized void done(Batch batch, int importedPersons) throws IOException {
+            imported += importedPersons;
+            done.put(batch.sequence(), batch);
+            while (done.containsKey(next)) {
+                committed = done.remove(next++).end();
+            }
+            List<Range> ahead = new ArrayList<>();
+            done.values().forEach(committedBatch -> ahead.add(new Range(committedBatch.start().offset(), committedBatch.end().offset())));
+            previouslyCommitted.stream().filter(range -> range.start() >= committed.offset()).forEach(ahead::add);
+            writeCheckpoint(checkpointFile, new Resume(committed, ahead.stream().distinct()
+                    .sorted(Comparator.comparingLong(Range::start)).toList()));
+            if(System.nanoTime() - lastLog > PROGRESS_LOG_INTERVAL_NANOS){
+                lastLog = System.nanoTime();
+                log.info("Import progress | file:{} row:{} imported:{}", file.getFileName(), committed.row(), imported);
+            }
+        }
+
+        synchronized void failed(Exception exception){
+            if(Objects.isNull(failure)){
+                failure = exception;
+            }
+        }
+    }
+
+    /*
+    Splits the file into records at the '\n' bytes, except inside CSV quotes. Safe on UTF-8: '\n' and '"' are never
+    part of a multibyte character. Keeps the file offset of the next record for the checkpoints.
+     */
+    static final class RecordReader {
+        private final FileChannel channel;
+        private final boolean quotes;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private byte[] record = new byte[1024];
+        private long position;
+
+        RecordReader(FileChannel channel, boolean quotes) throws IOException {
+            this.channel = channel;
+            this.quotes = quotes;
+            this.position = channel.position();
+            buffer.flip();
+        }
+
+        long position(){
+            return position;
+        }
+
+        void seek(long offset) throws IOException {
+            channel.position(offset);
+            buffer.clear().flip();
+            position = offset;
+        }
+
+        // Next non empty record, null at the end of the file
+        RawRow next() throws IOException {
+            int length = 0;
+            boolean quoted = false;
+            boolean tooLong = false;
+            while (true) {
+                if(!buffer.hasRemaining()){
+                    buffer.clear();
+                    int read = channel.read(buffer);
+                    buffer.flip();
+                    if(read < 0){
+                        return row(length, tooLong);
+                    }
+                    continue;
+                }
+                byte b = buffer.get();
+                position++;
+                if(b == '\n' && !quoted){
+                    RawRow row = row(length, tooLong);
+                    if(Objects.nonNull(row)){
+                        return row;
+                    }
+                    length = 0;
+                    continue;
+                }
+                if(tooLong){
+                    // Skipped up to the next newline, quotes included: the reader gets back in step there
+                    continue;
+                }
+                if(quotes && b == '"'){
+                    quoted = !quoted;
+                }
+                if(length == MAX_RECORD_BYTES){
+                    tooLong = true;
+                    quoted = false;
+                    continue;
+                }
+                if(length == record.length){
+                    record = Arrays.copyOf(record, Math.min(2 * length, MAX_RECORD_BYTES));
+                }
+                record[length++] = b;
+            }
+        }
+
+        private RawRow row(int length, boolean tooLong){
+            if(tooLong){
+                return new RawRow(null, true);
+            }
+            if(length > 0 && record[length - 1] == '\r'){
+                length--;
+            }
+            return length == 0 ? null : new RawRow(new String(record, 0, length, StandardCharsets.UTF_8), false);
+        }
+    }
+
+    record CsvColumns(int count, int firstName, int lastName, int birthDate) {
+        static CsvColumns of(List<String> header){
+            List<String> names = header.stream().map(name -> name.replace("\uFEFF", "").strip()).toList();
+            int firstName = indexOf(names, "firstName");
+            int lastName = indexOf(names, "lastName");
+            if(firstName < 0 || lastName < 0){
+                throw new IllegalArgumentException("The CSV header needs firstName and lastName columns: " + names);
+            }
+            return new CsvColumns(names.size(), firstName, lastName, indexOf(names, "birthDate"));
+        }
+
+        private static int indexOf(List<String> names, String column){
+            for (int i = 0; i < names.size(); i++) {
+                if(names.get(i).equalsIgnoreCase(column)){
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Person person(String record){
+            List<String> fields = csvFields(record);
+            if(fields.size() != count){
+                throw new IllegalArgumentException("Expected " + count + " fields, found " + fields.size());
+            }
+            return PersonImportService.person(fields.get(firstName), fields.get(lastName), birthDate < 0 ? null : fields.get(birthDate));
+        }
+    }
+
+    // RFC 4180 fields of a record, "" is a quote inside a quoted field
+    static List<String> csvFields(String record){
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if(quoted){
+                if(c != '"'){
+                    field.append(c);
+                } else if(i + 1 < record.length() && record.charAt(i + 1) == '"'){
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if(c == '"'){
+                quoted = true;
+            } else if(c == ','){
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if(quoted){
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    static Person ndjsonPerson(String record){
+        try (JsonParser parser = JSON.createParser(record)) {
+            if(parser.nextToken() != JsonToken.START_OBJECT){
+                throw new IllegalArgumentException("Not a JSON object");
+            }
+            String firstName = null;
+            String lastName = null;
+            String birthDate = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "firstName" -> firstName = text(parser, value, field);
+                    case "lastName" -> lastName = text(parser, value, field);
+                    case "birthDate" -> birthDate = text(parser, value, field);
+                    default -> parser.skipChildren();
+                }
+            }
+            if(Objects.nonNull(parser.nextToken())){
+                throw new IllegalArgumentException("More than one JSON value on the line");
+            }
+            return person(firstName, lastName, birthDate);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalArgumentException("Malformed JSON: " + exception.getOriginalMessage());
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static String text(JsonParser parser, JsonToken value, String field) throws IOException {
+        if(value == JsonToken.VALUE_NULL){
+            return null;
+        }
+        if(value != JsonToken.VALUE_STRING){
+            throw new IllegalArgumentException(field + " is not a string");
+        }
+        return parser.getText();
+    }
+
+    static Person person(String firstName, String lastName, String birthDate){
+        return Person.builder()
+                .firstName(name("firstName", firstName))
+                .lastName(name("lastName", lastName))
+                .birthDate(birthDate(birthDate))
+                .build();
+    }
+
+    private static String name(String field, String value){
+        if(Objects.isNull(value) || value.isBlank()){
+            throw new IllegalArgumentException(field + " is missing");
+        }
+        String name = value.strip();
+        if(name.length() > MAX_NAME_LENGTH){
+            throw new IllegalArgumentException(field + " is longer than " + MAX_NAME_LENGTH + " characters");
+        }
+        return name;
+    }
+
+    // 2024-05-01, or an instant like the ones of the exports
+    private static Date birthDate(String value){
+        if(Objects.isNull(value) || value.isBlank()){
+            return null;
+        }
+        Date date;
+        try {
+            date = value.length() == 10 ? java.sql.Date.valueOf(LocalDate.parse(value)) : Date.from(Instant.parse(value));
+        } catch (DateTimeParseException exception) {
+            throw new IllegalArgumentException("birthDate is not an ISO date: " + value);
+        }
+        if(date.after(new Date())){
+            throw new IllegalArgumentException("birthDate is in the future: " + value);
+        }
+        return date;
+    }
+}
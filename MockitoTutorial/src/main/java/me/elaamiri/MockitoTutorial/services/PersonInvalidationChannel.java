@@ -0,0 +1,26 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Carries the writes of an application instance to the other instances sharing its database, so they drop what
+ * they cached about the written persons. Declare a bean backed by the message broker of the deployment to replace
+ * the {@link InProcessInvalidationChannel} (single instance, tests).
+ * <p>
+ * Delivery is at-most-once and may lag: another instance serves what it cached until the message arrives.
+ */
+public interface PersonInvalidationChannel {
+
+    void publish(Invalidation invalidation);
+
+    // Every published invalidation is delivered to the listener, the ones of its own instance included
+    void subscribe(Consumer<Invalidation> listener);
+
+    /**
+     * @param origin id of the publishing instance
+     * @param ids    written persons, empty when any of them may have changed
+     */
+    record Invalidation(String origin, List<Long> ids) {
+    }
+}
@@ -0,0 +1,354 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.PersonSummary;
+import me.elaamiri.MockitoTutorial.dtos.SearchField;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory trigram index of the person names, answering "name contains keyword" (case insensitive)
+ * without scanning the person table. Every trigram of a lower-cased name maps to the ids of the persons
+ * having it; a search walks the smallest posting list of the keyword trigrams in id order and verifies
+ * each candidate against the indexed names. Keywords shorter than a trigram cannot be looked up, see
+ * {@link #MIN_KEYWORD_LENGTH}.
+ * <p>
+ * The index is loaded once the application is ready and kept in sync by the {@link PersonService} writes,
+ * which are applied after their transaction commits. The persons written by the other instances are read again
+ * when their invalidation is received (see {@link PersonQueryCache}).
+ */
+@Component
+@Slf4j
+public class PersonNameIndex {
+    public static final int MIN_KEYWORD_LENGTH = 3;
+    private static final int NAME_FIRST = 0;
+    private static final int NAME_LAST = 1;
+    private static final int LOCK_STRIPES = 64;
+
+    private final PersonRepository personRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    // id -> {lower-cased first name, lower-cased last name}, ordered by id
+    private final ConcurrentSkipListMap<Long, String[]> names = new ConcurrentSkipListMap<>();
+    private final Map<Long, Posting> firstNameGrams = new ConcurrentHashMap<>();
+    private final Map<Long, Posting> lastNameGrams = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    // ids written while the initial load runs, the load must not overwrite them with its older snapshot
+    private final Set<Long> writtenDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+    private volatile boolean ready;
+
+    // Ids having a trigram; ConcurrentSkipListSet.size() walks the whole set, the count is kept aside
+    private record Posting(NavigableSet<Long> ids, LongAdder size) {
+        Posting(){
+            this(new ConcurrentSkipListSet<>(), new LongAdder());
+        }
+    }
+
+    public PersonNameIndex(PersonRepository personRepository, TransactionTemplate transactionTemplate,
+                           PersonProperties personProperties){
+        this.personRepository = personRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = personProperties.getSearch().isTrigramIndexEnabled();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load(){
+        if(!enabled){
+            return;
+        }
+        long start = System.nanoTime();
+        loading = true;
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<PersonSummary> summaries = personRepository.streamAllSummaries()) {
+                summaries.filter(summary -> !writtenDuringLoad.contains(summary.id()))
+                        .forEach(summary -> index(summary.id(), summary.firstName(), summary.lastName()));
+            }
+        });
+        loading = false;
+        writtenDuringLoad.clear();
+        ready = true;
+        log.info("Person name index loaded | persons:{} trigrams:{} in {} ms", names.size(),
+                firstNameGrams.size() + lastNameGrams.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * True once the index holds every person, searches must not rely on it before.
+     */
+    public boolean isReady(){
+        return ready;
+    }
+
+    /**
+     * Indexes (or re-indexes) the person once the current transaction, if any, has committed.
+     */
+    public void put(Long id, String firstName, String lastName){
+        if(!enabled || Objects.isNull(id)){
+            return;
+        }
+        afterCommit(() -> {
+            markWritten(id);
+            index(id, firstName, lastName);
+        });
+    }
+
+    public void remove(Long id){
+        if(!enabled || Objects.isNull(id)){
+            return;
+        }
+        afterCommit(() -> {
+            markWritten(id);
+            unindex(id);
+        });
+    }
+
+    /**
+     * Reads again the names of persons written by another instance: indexes them, or forgets the ones deleted.
+     * No ids: any person may have changed, every one is read again. Runs in a transaction of its own, the caller
+     * may be completing one.
+     */
+    public void reload(Collection<Long> ids){
+        if(!enabled || !ready){
+            // Not loaded yet: the initial load reads them
+            return;
+        }
+        TransactionTemplate reading = new TransactionTemplate(Objects.requireNonNull(transactionTemplate.getTransactionManager()));
+        reading.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        reading.setReadOnly(true);
+        reading.executeWithoutResult(status -> {
+            if(ids.isEmpty()){
+                Set<Long> found = new HashSet<>();
+                try (Stream<PersonSummary> summaries = personRepository.streamAllSummaries()) {
+                    summaries.forEach(summary -> {
+                        found.add(summary.id());
+                        index(summary.id(), summary.firstName(), summary.lastName());
+                    });
+                }
+                names.keySet().stream().filter(id -> !found.contains(id)).toList().forEach(this::unindex);
+                return;
+            }
+            Map<Long, PersonSummary> found = personRepository.findSummariesByIdIn(ids).stream()
+                    .collect(Collectors.toMap(PersonSummary::id, Function.identity()));
+            for (Long id : ids) {
+                PersonSummary summary = found.get(id);
+                if(Objects.isNull(summary)){
+                    unindex(id);
+                } else {
+                    index(id, summary.firstName(), summary.lastName());
+                }
+            }
+        });
+    }
+
+    /**
+     * Ids, in ascending order, of the persons whose name contains the keyword (case insensitive).
+     * The lower-cased keyword must have at least {@link #MIN_KEYWORD_LENGTH} chars.
+     */
+    public List<Long> search(String keyword, SearchField field, int offset, int limit){
+        String needle = keyword.toLowerCase(Locale.ROOT);
+        if(needle.length() < MIN_KEYWORD_LENGTH){
+            throw new IllegalArgumentException("Keywords shorter than " + MIN_KEYWORD_LENGTH + " chars are not indexed");
+        }
+        List<Long> ids = new ArrayList<>(limit);
+        int skipped = 0;
+        Iterator<Long> candidates = candidates(needle, field);
+        while (candidates.hasNext() && ids.size() < limit) {
+            Long id = candidates.next();
+            String[] indexed = names.get(id);
+            if(Objects.isNull(indexed) || !matches(indexed, needle, field)){
+                continue;
+            }
+            if(skipped < offset){
+                skipped++;
+            } else {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    int size(){
+        return names.size();
+    }
+
+    private void afterCommit(Runnable action){
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void markWritten(Long id){
+        if(loading){
+            writtenDuringLoad.add(id);
+        }
+    }
+
+    private void index(Long id, String firstName, String lastName){
+        String[] indexed = {lower(firstName), lower(lastName)};
+        synchronized (lockFor(id)) {
+            String[] previous = names.put(id, indexed);
+            if(Objects.nonNull(previous)){
+                removeGrams(firstNameGrams, id, previous[NAME_FIRST]);
+                removeGrams(lastNameGrams, id, previous[NAME_LAST]);
+            }
+            addGrams(firstNameGrams, id, indexed[NAME_FIRST]);
+            addGrams(lastNameGrams, id, indexed[NAME_LAST]);
+        }
+    }
+
+    private void unindex(Long id){
+        synchronized (lockFor(id)) {
+            String[] previous = names.remove(id);
+            if(Objects.nonNull(previous)){
+                removeGrams(firstNameGrams, id, previous[NAME_FIRST]);
+                removeGrams(lastNameGrams, id, previous[NAME_LAST]);
+            }
+        }
+    }
+
+    private Object lockFor(Long id){
+        return locks[(int) (id & (LOCK_STRIPES - 1))];
+    }
+
+    private static String lower(String name){
+        return Objects.isNull(name) ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    // Three UTF-16 chars packed in a long, no String allocated per trigram
+    private static long trigram(String text, int at){
+        return ((long) text.charAt(at) << 32) | ((long) text.charAt(at + 1) << 16) | text.charAt(at + 2);
+    }
+
+    // Added within compute: a posting emptied by a concurrent removal is not dropped with the new id in it
+    private static void addGrams(Map<Long, Posting> grams, Long id, String name){
+        for (int i = 0; i + 3 <= name.length(); i++) {
+            grams.compute(trigram(name, i), (gram, posting) -> {
+                Posting ids = Objects.isNull(posting) ? new Posting() : posting;
+                if(ids.ids().add(id)){
+                    ids.size().increment();
+                }
+                return ids;
+            });
+        }
+    }
+
+    private static void removeGrams(Map<Long, Posting> grams, Long id, String name){
+        for (int i = 0; i + 3 <= name.length(); i++) {
+            grams.computeIfPresent(trigram(name, i), (gram, posting) -> {
+                if(posting.ids().remove(id)){
+                    posting.size().decrement();
+                }
+                return posting.ids().isEmpty() ? null : posting;
+            });
+        }
+    }
+
+    private static boolean matches(String[] indexed, String needle, SearchField field){
+        return switch (field) {
+            case FIRST_NAME -> indexed[NAME_FIRST].contains(needle);
+            case LAST_NAME -> indexed[NAME_LAST].contains(needle);
+            case ANY -> indexed[NAME_FIRST].contains(needle) || indexed[NAME_LAST].contains(needle);
+        };
+    }
+
+    private Iterator<Long> candidates(String needle, SearchField field){
+        return switch (field) {
+            case FIRST_NAME -> smallestPosting(firstNameGrams, needle).iterator();
+            case LAST_NAME -> smallestPosting(lastNameGrams, needle).iterator();
+            case ANY -> mergeAscending(smallestPosting(firstNameGrams, needle).iterator(),
+                    smallestPosting(lastNameGrams, needle).iterator());
+        };
+    }
+
+    private static NavigableSet<Long> smallestPosting(Map<Long, Posting> grams, String needle){
+        Posting smallest = null;
+        long smallestSize = Long.MAX_VALUE;
+        for (int i = 0; i + 3 <= needle.length(); i++) {
+            Posting posting = grams.get(trigram(needle, i));
+            if(Objects.isNull(posting)){
+                return Collections.emptyNavigableSet();
+            }
+            long size = posting.size().sum();
+            if(size < smallestSize){
+                smallest = posting;
+                smallestSize = size;
+            }
+        }
+        return smallest.ids();
+    }
+
+    // Union of two ascending id iterators, still ascending and without duplicates
+    private static Iterator<Long> mergeAscending(Iterator<Long> left, Iterator<Long> right){
+        return new Iterator<>() {
+            private Long nextLeft = advance(left);
+            private Long nextRight = advance(right);
+
+            @Override
+            public boolean hasNext() {
+                return Objects.nonNull(nextLeft) || Objects.nonNull(nextRight);
+            }
+
+            @Override
+            public Long next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                Long next;
+                if(Objects.isNull(nextRight) || (Objects.nonNull(nextLeft) && nextLeft < nextRight)){
+                    next = nextLeft;
+                    nextLeft = advance(left);
+                } else if(Objects.isNull(nextLeft) || nextRight < nextLeft){
+                    next = nextRight;
+                    nextRight = advance(right);
+                } else {
+                    next = nextLeft;
+                    nextLeft = advance(left);
+                    nextRight = advance(right);
+                }
+                return next;
+            }
+
+            private static Long advance(Iterator<Long> iterator){
+                return iterator.hasNext() ? iterator.next() : null;
+            }
+        };
+    }
+}
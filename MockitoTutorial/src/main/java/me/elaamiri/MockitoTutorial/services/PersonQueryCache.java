@@ -0,0 +1,240 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.config.ContentNegotiationConfig;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.CacheStatsDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache of query results (the full list, the searches), in front of the per-id {@link PersonCache}.
+ * <p>
+ * Results are kept serialized (Smile), so they cost their encoded size and every caller gets its own copy. Entries
+ * are keyed by the write version: any create, update or delete bumps it, after which older entries are never read
+ * again and age out. The version is bumped when the write is made and again once its transaction completes, so a
+ * query that ran concurrently with the write cannot leave a stale result behind.
+ * <p>
+ * Writes are also published on the {@link PersonInvalidationChannel}: the other instances sharing the database bump
+ * their version, drop the written persons from their per-id cache and their second-level cache region, and read
+ * their names again for the search index.
+ * <p>
+ * With read replicas ({@code persons.routing.enabled}), a read that missed right after the write may have loaded
+ * the old rows from a replica that had not caught up: every instance drops the written persons again once
+ * {@code persons.routing.max-replica-lag} has passed.
+ */
+@Component
+@Slf4j
+public class PersonQueryCache implements MeterBinder {
+    private final boolean enabled;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicLong writeVersion = new AtomicLong();
+    private final Cache<QueryKey, byte[]> cache;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final PersonInvalidationChannel personInvalidationChannel;
+    private final PersonCache personCache;
+    private final EntityManagerFactory entityManagerFactory;
+    private final PersonNameIndex personNameIndex;
+    private final LongAdder received = new LongAdder();
+    // Null without read replicas
+    private final Duration replicaLag;
+
+    private record QueryKey(long version, String query) {
+    }
+
+    // Hibernate reads DATE columns as java.sql.Date (rendered yyyy-MM-dd), so must a person read back from the cache
+    private abstract static class CachedPersonMixIn {
+        @JsonDeserialize(as = java.sql.Date.class)
+        Date birthDate;
+    }
+
+    public PersonQueryCache(PersonProperties personProperties, Jackson2ObjectMapperBuilder builder,
+                            PersonInvalidationChannel personInvalidationChannel, PersonCache personCache,
+                            EntityManagerFactory entityManagerFactory, PersonNameIndex personNameIndex){
+        PersonProperties.QueryCache properties = personProperties.getQueryCache();
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumSize().toBytes())
+                .weigher((QueryKey key, byte[] result) -> result.length)
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        ObjectMapper mapper = ContentNegotiationConfig.smileMapper(builder.mixIn(Person.class, CachedPersonMixIn.class));
+        this.writer = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, Person.class));
+        this.reader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, Person.class));
+        this.personInvalidationChannel = personInvalidationChannel;
+        this.personCache = personCache;
+        this.entityManagerFactory = entityManagerFactory;
+        this.personNameIndex = personNameIndex;
+        this.replicaLag = personProperties.getRouting().isEnabled() ? personProperties.getRouting().getMaxReplicaLag() : null;
+        personInvalidationChannel.subscribe(this::invalidated);
+    }
+
+    /**
+     * Returns the cached result of the query, or runs the loader and caches its result.
+     * The query string must identify the result completely (parameters included).
+     */
+    public List<Person> get(String query, Supplier<List<Person>> loader){
+        if(!enabled){
+            return loader.get();
+        }
+        byte[] result = cache.get(new QueryKey(writeVersion.get(), query), key -> serialize(loader.get()));
+        return deserialize(result);
+    }
+
+    public void written(Long id){
+        if(Objects.nonNull(id)){
+            written(List.of(id));
+        }
+    }
+
+    /**
+     * Records a write of these persons: cached results are dropped now and, when called inside a transaction,
+     * again once it has completed, when the other instances are told as well.
+     */
+    public void written(Collection<Long> ids){
+        List<Long> written = ids.stream().filter(Objects::nonNull).toList();
+        if(written.isEmpty()){
+            return;
+        }
+        writeVersion.incrementAndGet();
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    writeVersion.incrementAndGet();
+                    publish(written);
+                    dropAfterReplicaLag(written);
+                }
+            });
+        } else {
+            publish(written);
+            dropAfterReplicaLag(written);
+        }
+    }
+
+    private void publish(List<Long> ids){
+        try {
+            personInvalidationChannel.publish(new PersonInvalidationChannel.Invalidation(instanceId, ids));
+        } catch (RuntimeException exception) {
+            // The write is committed, the other instances catch up when their entries expire
+            log.warn("Invalidation not published | count:{} {}", ids.size(), exception.getMessage());
+        }
+    }
+
+    private void invalidated(PersonInvalidationChannel.Invalidation invalidation){
+        if(instanceId.equals(invalidation.origin())){
+            return;
+        }
+        received.increment();
+        drop(invalidation.ids());
+        reindex(invalidation.ids());
+        // The names too may have been read from a replica that had not caught up
+        afterReplicaLag(() -> {
+            drop(invalidation.ids());
+            reindex(invalidation.ids());
+        });
+        log.debug("Invalidation received | origin:{} count:{}", invalidation.origin(), invalidation.ids().size());
+    }
+
+    // No ids: any person may have changed
+    private void drop(List<Long> ids){
+        writeVersion.incrementAndGet();
+        if(ids.isEmpty()){
+            personCache.invalidateAll();
+        } else {
+            personCache.invalidateAll(ids);
+        }
+        if(Objects.nonNull(entityManagerFactory)){
+            if(ids.isEmpty()){
+                entityManagerFactory.getCache().evict(Person.class);
+            } else {
+                ids.forEach(id -> entityManagerFactory.getCache().evict(Person.class, id));
+            }
+        }
+    }
+
+    // Writes of this instance are indexed by PersonService itself
+    private void reindex(List<Long> ids){
+        if(Objects.nonNull(personNameIndex)){
+            personNameIndex.reload(ids);
+        }
+    }
+
+    private void dropAfterReplicaLag(List<Long> ids){
+        afterReplicaLag(() -> drop(ids));
+    }
+
+    private void afterReplicaLag(Runnable action){
+        if(Objects.nonNull(replicaLag)){
+            CompletableFuture.runAsync(action,
+                    CompletableFuture.delayedExecutor(replicaLag.toMillis(), TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private byte[] serialize(List<Person> persons){
+        try {
+            return writer.writeValueAsBytes(persons);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private List<Person> deserialize(byte[] result){
+        try {
+            return reader.readValue(result);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    // cache.gets (hit/miss), cache.evictions, cache.size... tagged cache=person-queries on the metrics endpoint
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "person-queries");
+        FunctionCounter.builder("persons.invalidations.received", received, LongAdder::sum)
+                .description("Writes of other instances received on the invalidation channel")
+                .register(registry);
+    }
+
+    public CacheStatsDto stats(){
+        CacheStats stats = cache.stats();
+        return CacheStatsDto.builder()
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .evictionCount(stats.evictionCount())
+                .hitRate(stats.hitRate())
+                .build();
+    }
+}
@@ -1,81 +1,570 @@
 package me.elaamiri.MockitoTutorial.services;
 
+import jakarta.persistence.EntityManager;
 import lombok.AllArgsConstructor;
-import lombok.NoArgsConstructor;
-import lombok.extern.java.Log;
-import lombok.extern.log4j.Log4j;
 import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.BatchResultDto;
+import me.elaamiri.MockitoTutorial.dtos.CacheStatsDto;
+import me.elaamiri.MockitoTutorial.dtos.ChangeFeedDto;
+import me.elaamiri.MockitoTutorial.dtos.ChangeToken;
+import me.elaamiri.MockitoTutorial.dtos.ChangeType;
+import me.elaamiri.MockitoTutorial.dtos.PersonChangeDto;
 import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.dtos.PersonLookupDto;
+import me.elaamiri.MockitoTutorial.dtos.PersonSummary;
+import me.elaamiri.MockitoTutorial.dtos.PersonVersion;
+import me.elaamiri.MockitoTutorial.dtos.SearchField;
+import me.elaamiri.MockitoTutorial.dtos.SearchMode;
 import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.entities.PersonTombstone;
 import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import me.elaamiri.MockitoTutorial.repositories.PersonTombstoneRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.logging.Logger;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/*
+Latency, outcome (not found, failed...) and call counts of every method are recorded by PersonServiceMetrics,
+the per call logs are debug level so they cost nothing in production
+ */
 @Service
-@AllArgsConstructor @NoArgsConstructor
+@AllArgsConstructor
 @Slf4j
 public class PersonService {
     PersonRepository personRepository;
+    EntityManager entityManager;
+    TransactionTemplate transactionTemplate;
+    PersonProperties personProperties;
+    PersonCache personCache;
+    PersonNameIndex personNameIndex;
+    PersonTombstoneRepository personTombstoneRepository;
+    PersonQueryCache personQueryCache;
+    PersonChangeSequencer personChangeSequencer;
 
     public Optional<Person> getPersonById(long id){
-        log.info("Get Person By Id | {}", id);
-        return personRepository.findById(id);
+        log.debug("Get Person By Id | {}", id);
+        return personCache.get(id, personRepository::findById);
     }
 
+    /**
+     * Version and modification time of a person for a conditional GET: taken from the cached person when there is
+     * one, otherwise read alone by primary key.
+     */
+    public Optional<PersonVersion> getPersonVersion(long id){
+        log.debug("Get Person Version | {}", id);
+        return personCache.getIfCached(id).map(PersonVersion::of)
+                .or(() -> personRepository.findVersionById(id));
+    }
+
+    // Versions of the persons of the keyset page, for the ETag of a page
+    @Transactional(readOnly = true)
+    public List<PersonVersion> getPersonVersionsPage(long after, int limit){
+        log.debug("Get Person Versions Page | after:{} limit:{}", after, limit);
+        return personRepository.findVersionsByIdGreaterThan(after, Limit.of(limit));
+    }
+
+    /**
+     * Bulk get: duplicates are dropped, cached persons (and ids known to be missing) are served from the cache and
+     * the others are read with {@code WHERE id IN (...)} queries of {@code persons.lookup.chunk-size} ids.
+     * One entry per distinct id, in request order.
+     */
+    public List<PersonLookupDto> lookupPersons(List<Long> ids){
+        log.debug("Lookup Persons | count:{}", ids.size());
+        Set<Long> distinct = ids.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, Optional<Person>> persons = personCache.getAll(distinct, this::findAllByIdInChunks);
+        return distinct.stream()
+                .map(id -> {
+                    Person person = persons.getOrDefault(id, Optional.empty()).orElse(null);
+                    return PersonLookupDto.builder().id(id).found(Objects.nonNull(person)).person(person).build();
+                })
+                .toList();
+    }
+
+    private Map<Long, Optional<Person>> findAllByIdInChunks(Set<Long> ids){
+        int chunkSize = personProperties.getLookup().getChunkSize();
+        List<Long> toRead = List.copyOf(ids);
+        Map<Long, Optional<Person>> found = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < toRead.size(); from += chunkSize) {
+            for (Person person : personRepository.findAllById(toRead.subList(from, Math.min(from + chunkSize, toRead.size())))) {
+                found.put(person.getId(), Optional.of(person));
+            }
+        }
+        // Missing ids are cached as such too
+        ids.forEach(id -> found.putIfAbsent(id, Optional.empty()));
+        return found;
+    }
+
+    public CacheStatsDto getCacheStats(){
+        return personCache.stats();
+    }
+
+    public CacheStatsDto getQueryCacheStats(){
+        return personQueryCache.stats();
+    }
+
+    /**
+     * Hit ratio of the second-level cache region of Person, counted only with hibernate.generate_statistics=true.
+     * All zeros when the second-level cache is off.
+     */
+    public CacheStatsDto getSecondLevelCacheStats(){
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        CacheRegionStatistics region;
+        try {
+            region = statistics.getDomainDataRegionStatistics(Person.CACHE_REGION);
+        } catch (IllegalArgumentException exception) {
+            region = null;
+        }
+        if(Objects.isNull(region)){
+            return CacheStatsDto.builder().build();
+        }
+        long lookups = region.getHitCount() + region.getMissCount();
+        return CacheStatsDto.builder()
+                .size(Math.max(0, region.getElementCountInMemory()))
+                .hitCount(region.getHitCount())
+                .missCount(region.getMissCount())
+                .hitRate(lookups == 0 ? 0 : (double) region.getHitCount() / lookups)
+                .build();
+    }
+
+    // Served by the query cache: a hit takes no connection, a miss reads in its own read-only transaction
     public List<Person> getAllPersons(){
-        log.info("Get All Persons ");
-        return personRepository.findAll();
+        log.debug("Get All Persons ");
+        return personQueryCache.get("all", () -> readOnly(personRepository::findAll));
+    }
+
+    /**
+     * Keyset page of persons ordered by id: the persons whose id is strictly greater than {@code after}.
+     * Pass the id of the last person of the previous page to get the next one.
+     */
+    @Transactional(readOnly = true)
+    public List<Person> getPersonsPage(long after, int limit){
+        log.debug("Get Persons Page | after:{} limit:{}", after, limit);
+        return personRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit));
+    }
+
+    /**
+     * Same page as {@link #getPersonsPage(long, int)} but only ids and names, read straight into records.
+     */
+    @Transactional(readOnly = true)
+    public List<PersonSummary> getPersonSummariesPage(long after, int limit){
+        log.debug("Get Person Summaries Page | after:{} limit:{}", after, limit);
+        return personRepository.findSummariesByIdGreaterThan(after, Limit.of(limit));
+    }
+
+    /**
+     * Pushes every person, ordered by id, to the consumer straight from a forward-only result set.
+     * Each person is detached once consumed so the persistence context stays empty whatever the table size.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllPersons(Consumer<Person> consumer){
+        log.debug("Stream All Persons ");
+        try (Stream<Person> persons = personRepository.streamAllOrderedById()) {
+            persons.forEach(person -> {
+                consumer.accept(person);
+                entityManager.detach(person);
+            });
+        }
+    }
+
+    /**
+     * Page of the persons whose first name, last name or either matches the keyword.
+     * PREFIX uses the name indexes of the table, CONTAINS the in-memory trigram index (then one IN query),
+     * or a scan of the table for keywords shorter than a trigram.
+     * The page size is capped by persons.search.max-page-size and paging stops at persons.search.max-results.
+     * Pages are served by the query cache until the next write.
+     */
+    public List<Person> searchPersons(String keyword, SearchField field, SearchMode mode, int page, int size){
+        log.debug("Search Persons | {} {} {}", mode, field, keyword);
+        PersonProperties.Search properties = personProperties.getSearch();
+        int pageSize = Math.max(1, Math.min(size, properties.getMaxPageSize()));
+        long offset = (long) page * pageSize;
+        if(keyword.isEmpty() || page < 0 || offset >= properties.getMaxResults()){
+            return List.of();
+        }
+        String query = "search:" + mode + ":" + field + ":" + page + ":" + pageSize + ":" + keyword;
+        return personQueryCache.get(query, () -> readOnly(() -> search(keyword, field, mode, page, pageSize, offset)));
+    }
+
+    private <T> T readOnly(Supplier<T> reader){
+        TransactionTemplate readOnly = new TransactionTemplate(Objects.requireNonNull(transactionTemplate.getTransactionManager()));
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> reader.get());
+    }
+
+    private List<Person> search(String keyword, SearchField field, SearchMode mode, int page, int pageSize, long offset){
+        if(mode == SearchMode.PREFIX){
+            return searchByPrefix(keyword, field, PageRequest.of(page, pageSize));
+        }
+        String needle = keyword.toLowerCase(Locale.ROOT);
+        if(!personNameIndex.isReady() || needle.length() < PersonNameIndex.MIN_KEYWORD_LENGTH){
+            return searchByScan(keyword, field, PageRequest.of(page, pageSize, Sort.by("id")));
+        }
+        List<Long> ids = personNameIndex.search(keyword, field, (int) offset, pageSize);
+        // The database row has the final say, the index may lag behind a concurrent write
+        return personRepository.findAllById(ids).stream()
+                .filter(person -> containsIgnoreCase(person, needle, field))
+                .sorted(Comparator.comparing(Person::getId))
+                .toList();
+    }
+
+    private List<Person> searchByPrefix(String prefix, SearchField field, PageRequest pageRequest){
+        return switch (field) {
+            case FIRST_NAME -> personRepository.findByFirstNameStartingWith(prefix,
+                    pageRequest.withSort(Sort.by("firstName", "id")));
+            case LAST_NAME -> personRepository.findByLastNameStartingWith(prefix,
+                    pageRequest.withSort(Sort.by("lastName", "id")));
+            case ANY -> searchByPrefixOnEither(prefix, pageRequest);
+        };
+    }
+
+    /*
+    An OR across the two columns cannot be served by either name index (it scans the table): each index is range
+    scanned for the persons up to the end of the page, the two lists are merged by id and the page cut out of it
+     */
+    private List<Person> searchByPrefixOnEither(String prefix, PageRequest pageRequest){
+        Limit upToPage = Limit.of((int) pageRequest.getOffset() + pageRequest.getPageSize());
+        Map<Long, Person> merged = new TreeMap<>();
+        personRepository.findByFirstNameStartingWithOrderByIdAsc(prefix, upToPage).forEach(person -> merged.put(person.getId(), person));
+        personRepository.findByLastNameStartingWithOrderByIdAsc(prefix, upToPage).forEach(person -> merged.putIfAbsent(person.getId(), person));
+        return merged.values().stream().skip(pageRequest.getOffset()).limit(pageRequest.getPageSize()).toList();
+    }
+
+    private List<Person> searchByScan(String keyword, SearchField field, Pageable pageable){
+        return switch (field) {
+            case FIRST_NAME -> personRepository.findByFirstNameContainingIgnoreCase(keyword, pageable);
+            case LAST_NAME -> personRepository.findByLastNameContainingIgnoreCase(keyword, pageable);
+            case ANY -> personRepository.findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(keyword, keyword, pageable);
+        };
+    }
+
+    private static boolean containsIgnoreCase(Person person, String needle, SearchField field){
+        String firstName = Objects.toString(person.getFirstName(), "").toLowerCase(Locale.ROOT);
+        String lastName = Objects.toString(person.getLastName(), "").toLowerCase(Locale.ROOT);
+        return switch (field) {
+            case FIRST_NAME -> firstName.contains(needle);
+            case LAST_NAME -> lastName.contains(needle);
+            case ANY -> firstName.contains(needle) || lastName.contains(needle);
+        };
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllPersonSummaries(Consumer<PersonSummary> consumer){
+        log.debug("Stream All Person Summaries ");
+        try (Stream<PersonSummary> summaries = personRepository.streamAllSummaries()) {
+            summaries.forEach(consumer);
+        }
     }
 
+    @Transactional
     public Person createPerson(PersonDto person){
-        log.info("create Person | {}", person.getFirstName());
+        log.debug("create Person | {}", person.getFirstName());
+        Date now = new Date();
         Person personToCreate= Person.builder().firstName(person.getFirstName())
                 .lastName(person.getLastName())
                 .birthDate(person.getBirthDate())
-                .creationDate(new Date())
-                .lastModificationDate(new Date()).build();
-        return personRepository.save(personToCreate);
+                .creationDate(now)
+                .lastModificationDate(now).build();
+        Person created = personRepository.save(personToCreate);
+        personChangeSequencer.written(created.getId());
+        // The id may have been looked up (and cached as missing) before
+        personCache.invalidate(created.getId());
+        personQueryCache.written(created.getId());
+        personNameIndex.put(created.getId(), created.getFirstName(), created.getLastName());
+        return created;
     }
 
+    /**
+     * Single statement update: {@code UPDATE ... WHERE id = ? [AND version = ?]}, no read before the write.
+     * When the dto carries a version the update only applies to that version of the person and a stale version
+     * raises an {@link OptimisticLockingFailureException}. Returns null when there is no person with this id,
+     * otherwise the person as written. Without a version in the dto, the new one is read back after the update.
+     */
+    @Transactional
     public Person updatePerson(PersonDto person){
-        log.info("update Person | {}", person.getFirstName());
+        log.debug("update Person | {}", person.getFirstName());
         if(Objects.isNull(person.getId())){
-            log.error("You are trying to edit a person with no id. Name:{}", person.getFirstName());
+            log.debug("You are trying to edit a person with no id. Name:{}", person.getFirstName());
             return null;
         }
-        Person retrieved = personRepository.findById(person.getId()).orElse(null);
-        if(Objects.isNull(retrieved)){
-            log.error("No person with this id. ID:{}", person.getId());
+        Date now = new Date();
+        int updated = Objects.isNull(person.getVersion())
+                ? personRepository.updateById(person.getId(), person.getFirstName(), person.getLastName(),
+                        person.getBirthDate(), person.getCreationDate(), now)
+                : personRepository.updateByIdAndVersion(person.getId(), person.getVersion(), person.getFirstName(),
+                        person.getLastName(), person.getBirthDate(), person.getCreationDate(), now);
+        if(updated == 0){
+            // Only the failure path pays for a second statement
+            if(Objects.nonNull(person.getVersion()) && personRepository.existsById(person.getId())){
+                log.debug("Stale version of person. ID:{} version:{}", person.getId(), person.getVersion());
+                throw new OptimisticLockingFailureException("Person " + person.getId()
+                        + " was modified by someone else, version " + person.getVersion() + " is stale");
+            }
+            log.debug("No person with this id. ID:{}", person.getId());
             return null;
         }
-
-        retrieved.setFirstName(person.getFirstName());
-        retrieved.setLastName(person.getLastName());
-        retrieved.setBirthDate(person.getBirthDate());
-        retrieved.setCreationDate(person.getCreationDate());
-        retrieved.setLastModificationDate(new Date());
-
-        return personRepository.save(retrieved);
+        // The version the caller based its update on is unknown: the one just written is read back
+        Long version = Objects.nonNull(person.getVersion()) ? Long.valueOf(person.getVersion() + 1)
+                : personRepository.findVersionById(person.getId()).map(PersonVersion::version).orElse(null);
+        personChangeSequencer.written(person.getId());
+        personCache.invalidate(person.getId());
+        personQueryCache.written(person.getId());
+        personNameIndex.put(person.getId(), person.getFirstName(), person.getLastName());
+        return Person.builder().id(person.getId())
+                .firstName(person.getFirstName())
+                .lastName(person.getLastName())
+                .birthDate(person.getBirthDate())
+                .creationDate(person.getCreationDate())
+                .lastModificationDate(now)
+                .version(version)
+                .build();
     }
 
+    /**
+     * Single statement delete: {@code DELETE ... WHERE id = ?}, the affected row count tells whether it existed.
+     * A deleted person leaves a tombstone for the change feed, written in the same transaction.
+     */
+    @Transactional
     public boolean deletePersonById(long id){
-        log.info("delete Person | ID:{}", id);
-        Person retrieved = personRepository.findById(id).orElse(null);
-        if(Objects.isNull(retrieved)){
-            log.error("No person with this id. ID:{}", id);
-            return false;
+        log.debug("delete Person | ID:{}", id);
+        int deleted;
+        try{
+            deleted = personRepository.removeById(id);
+            if(deleted > 0){
+                personTombstoneRepository.save(PersonTombstone.builder().personId(id).deletedAt(new Date()).build());
+                personChangeSequencer.deleted(id);
+            }
         }
-        try{personRepository.deleteById(id);}
         catch (Exception exception){
             log.error("Can not delete person. ID:{}", id);
             log.error("Exception |{}", exception.getMessage());
+            // Local rollback: the commit of this method rolls back quietly instead of failing
+            if(TransactionSynchronizationManager.isActualTransactionActive()){
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            }
             return false;
         }
+        finally {
+            personCache.invalidate(id);
+            personQueryCache.written(id);
+        }
+        if(deleted == 0){
+            log.debug("No person with this id. ID:{}", id);
+            return false;
+        }
+        personNameIndex.remove(id);
         return true;
     }
+
+    /**
+     * Creates the persons chunk by chunk, one transaction per chunk. Inserts of a chunk are sent as JDBC batches
+     * and the persistence context is flushed and cleared after each chunk so it never grows past one chunk.
+     * Chunks already committed stay committed if a later one fails.
+     */
+    public BatchResultDto createPersons(List<PersonDto> persons, Integer chunkSize){
+        log.debug("create Persons | count:{}", persons.size());
+        return inChunks(persons, chunkSize, chunk -> persist(chunk).size());
+    }
+
+    /**
+     * Inserts the persons in a single transaction (batched inserts) and returns them, with their ids,
+     * in the given order. Used by the write-behind queue to write what it coalesced.
+     */
+    public List<Person> insertPersons(List<PersonDto> persons){
+        log.debug("insert Persons | count:{}", persons.size());
+        return transactionTemplate.execute(status -> {
+            List<Person> created = persist(persons);
+            entityManager.flush();
+            entityManager.clear();
+            return created;
+        });
+    }
+
+    /**
+     * Inserts new persons built by the bulk import in a single transaction (batched inserts). Ids, versions and
+     * dates are assigned here.
+     */
+    public int importPersons(List<Person> persons){
+        log.debug("import Persons | count:{}", persons.size());
+        return Objects.requireNonNull(transactionTemplate.execute(status -> {
+            persistNew(persons);
+            entityManager.flush();
+            entityManager.clear();
+            return persons.size();
+        }));
+    }
+
+    private List<Person> persist(List<PersonDto> persons){
+        return persistNew(persons.stream().map(person -> Person.builder().firstName(person.getFirstName())
+                .lastName(person.getLastName())
+                .birthDate(person.getBirthDate()).build()).toList());
+    }
+
+    private List<Person> persistNew(List<Person> created){
+        Date now = new Date();
+        for (Person personToCreate : created) {
+            personToCreate.setId(null);
+            personToCreate.setVersion(null);
+            personToCreate.setCreationDate(now);
+            personToCreate.setLastModificationDate(now);
+            entityManager.persist(personToCreate);
+            personNameIndex.put(personToCreate.getId(), personToCreate.getFirstName(), personToCreate.getLastName());
+        }
+        List<Long> ids = created.stream().map(Person::getId).toList();
+        personChangeSequencer.written(ids);
+        personCache.invalidateAll(ids);
+        personQueryCache.written(ids);
+        return created;
+    }
+
+    /**
+     * Updates the persons chunk by chunk: one {@code IN} query loads a chunk, the changes are flushed as batched
+     * updates. Persons without an id, not found or with a stale version are skipped and not counted as processed.
+     */
+    public BatchResultDto updatePersons(List<PersonDto> persons, Integer chunkSize){
+        log.debug("update Persons | count:{}", persons.size());
+        return inChunks(persons, chunkSize, chunk -> {
+            List<Long> ids = chunk.stream().map(PersonDto::getId).filter(Objects::nonNull).toList();
+            Map<Long, Person> retrieved = personRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Person::getId, Function.identity()));
+            personCache.invalidateAll(retrieved.keySet());
+            personQueryCache.written(retrieved.keySet());
+            Date now = new Date();
+            int updated = 0;
+            for (PersonDto person : chunk) {
+                Person toUpdate = Objects.isNull(person.getId()) ? null : retrieved.get(person.getId());
+                if(Objects.isNull(toUpdate)){
+                    log.debug("No person with this id. ID:{}", person.getId());
+                    continue;
+                }
+                if(Objects.nonNull(person.getVersion()) && !person.getVersion().equals(toUpdate.getVersion())){
+                    log.debug("Stale version of person. ID:{} version:{}", person.getId(), person.getVersion());
+                    continue;
+                }
+                toUpdate.setFirstName(person.getFirstName());
+                toUpdate.setLastName(person.getLastName());
+                toUpdate.setBirthDate(person.getBirthDate());
+                toUpdate.setCreationDate(person.getCreationDate());
+                toUpdate.setLastModificationDate(now);
+                personNameIndex.put(toUpdate.getId(), toUpdate.getFirstName(), toUpdate.getLastName());
+                personChangeSequencer.written(toUpdate.getId());
+                updated++;
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * Deletes the persons with one {@code DELETE ... WHERE id IN (...)} per chunk. Unknown ids are ignored,
+     * the deleted ones get a tombstone (batched inserts).
+     */
+    public BatchResultDto deletePersonsByIds(List<Long> ids, Integer chunkSize){
+        log.debug("delete Persons | count:{}", ids.size());
+        return inChunks(ids, chunkSize, chunk -> {
+            personCache.invalidateAll(chunk);
+            personQueryCache.written(chunk);
+            chunk.forEach(personNameIndex::remove);
+            List<Long> existing = personRepository.findIdsByIdIn(chunk);
+            int deleted = personRepository.deleteAllByIdIn(chunk);
+            Date now = new Date();
+            personTombstoneRepository.saveAll(existing.stream()
+                    .map(id -> PersonTombstone.builder().personId(id).deletedAt(now).build())
+                    .toList());
+            personChangeSequencer.deleted(existing);
+            return deleted;
+        });
+    }
+
+    /**
+     * Persons created, updated or deleted after the token, in commit order, at most {@code limit} of them.
+     * Both reads are keyset range scans of the change sequence indexes, so a call costs what changed and not the
+     * table size. The sequence is assigned at commit by {@link PersonChangeSequencer}: a write committed after a
+     * call always comes after its watermark. Changes younger than {@code persons.changes.settle-time} are held back,
+     * and the ones after them, so the read replicas have caught up when the consumer reads the changed persons.
+     */
+    @Transactional(readOnly = true)
+    public ChangeFeedDto getChanges(ChangeToken since, int limit){
+        log.debug("Get Changes | since:{} limit:{}", since, limit);
+        Date until = new Date(System.currentTimeMillis() - personProperties.getChanges().getSettleTime().toMillis());
+        List<PersonChangeDto> changes = new ArrayList<>();
+        for (Person person : personRepository.findChangedSince(since.sequence(), since.id(), Limit.of(limit + 1))) {
+            changes.add(PersonChangeDto.builder().type(ChangeType.UPSERTED).id(person.getId())
+                    .sequence(person.getChangeSequence()).at(person.getLastModificationDate()).person(person).build());
+        }
+        for (PersonTombstone tombstone : personTombstoneRepository.findDeletedSince(since.sequence(), since.id(), Limit.of(limit + 1))) {
+            changes.add(PersonChangeDto.builder().type(ChangeType.DELETED).id(tombstone.getPersonId())
+                    .sequence(tombstone.getChangeSequence()).at(tombstone.getDeletedAt()).build());
+        }
+        changes.sort(Comparator.comparingLong(PersonChangeDto::getSequence).thenComparing(PersonChangeDto::getId));
+        // Up to the first change held back: the watermark never passes it
+        int ready = 0;
+        while (ready < changes.size() && ready <= limit && !changes.get(ready).getAt().after(until)) {
+            ready++;
+        }
+        boolean hasMore = ready > limit;
+        List<PersonChangeDto> page = changes.subList(0, Math.min(ready, limit));
+        ChangeToken next = page.isEmpty() ? since
+                : new ChangeToken(page.get(page.size() - 1).getSequence(), page.get(page.size() - 1).getId());
+        return ChangeFeedDto.builder().changes(List.copyOf(page)).next(next.toString()).hasMore(hasMore).build();
+    }
+
+    private <T> BatchResultDto inChunks(List<T> records, Integer requestedChunkSize, ToIntFunction<List<T>> chunkWriter){
+        int chunkSize = Objects.isNull(requestedChunkSize) || requestedChunkSize <= 0
+                ? personProperties.getBatch().getChunkSize() : requestedChunkSize;
+        long start = System.nanoTime();
+        int processed = 0;
+        int chunks = 0;
+        for (int from = 0; from < records.size(); from += chunkSize) {
+            List<T> chunk = records.subList(from, Math.min(from + chunkSize, records.size()));
+            Integer written = transactionTemplate.execute(status -> {
+                int count = chunkWriter.applyAsInt(chunk);
+                entityManager.flush();
+                entityManager.clear();
+                return count;
+            });
+            processed += Objects.requireNonNullElse(written, 0);
+            chunks++;
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        BatchResultDto result = BatchResultDto.builder()
+                .requested(records.size())
+                .processed(processed)
+                .chunkSize(chunkSize)
+                .chunks(chunks)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .recordsPerSecond(elapsedNanos == 0 ? 0 : processed * 1_000_000_000d / elapsedNanos)
+                .build();
+        log.info("Batch done | processed:{} chunkSize:{} records/sec:{}", processed, chunkSize,
+                Math.round(result.getRecordsPerSecond()));
+        return result;
+    }
 }
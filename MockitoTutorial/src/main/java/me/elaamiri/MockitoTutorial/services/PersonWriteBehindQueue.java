@@ -0,0 +1,237 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.dtos.WriteStatus;
+import me.elaamiri.MockitoTutorial.dtos.WriteTicketDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind mode of {@code POST api/persons/}: the person is put in a bounded queue and the request is answered
+ * with a ticket right away. One writer thread coalesces the queue into batches of {@code batch-size} persons, each
+ * written in one transaction by {@link PersonService#insertPersons(List)}, as soon as a batch is full or
+ * {@code flush-interval} after its first person was taken.
+ * <p>
+ * A full queue blocks the request for at most {@code offer-timeout} and then rejects it, so producers are slowed
+ * down to the speed of the database. On shutdown the queue stops accepting persons and is written out before the
+ * datasource goes away. If a batch fails its persons are written one by one so only the bad ones fail.
+ */
+@Component
+@Slf4j
+public class PersonWriteBehindQueue implements SmartLifecycle, MeterBinder {
+    // Stopped after the web server (which stops at DEFAULT_PHASE - 1024/2048): no request can enqueue anymore
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+    /*
+    Tickets kept per queue slot: the queued ones (at most the capacity) plus the done ones until their TTL. A burst of
+    writes far above the queue throughput can no longer grow the tickets without bound within the TTL
+     */
+    private static final int TICKETS_PER_SLOT = 8;
+
+    private final PersonService personService;
+    private final PersonProperties.WriteBehind properties;
+    private final BlockingQueue<PendingPerson> queue;
+    private final Cache<String, WriteTicketDto> tickets;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean running;
+    private Thread writer;
+
+    private record PendingPerson(String handle, PersonDto person) {
+    }
+
+    public PersonWriteBehindQueue(PersonService personService, PersonProperties personProperties){
+        this.personService = personService;
+        this.properties = personProperties.getWriteBehind();
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.tickets = Caffeine.newBuilder()
+                .maximumSize((long) properties.getQueueCapacity() * TICKETS_PER_SLOT)
+                .expireAfterWrite(properties.getTicketTtl())
+                .build();
+    }
+
+    public boolean isEnabled(){
+        return properties.isEnabled();
+    }
+
+    /**
+     * Queues the person, waiting up to {@code offer-timeout} for room.
+     *
+     * @throws RejectedExecutionException when the queue stayed full or the writer is stopped
+     */
+    public WriteTicketDto submit(PersonDto person){
+        if(!running){
+            throw new RejectedExecutionException("Write-behind queue is not running");
+        }
+        String handle = UUID.randomUUID().toString();
+        WriteTicketDto ticket = WriteTicketDto.builder().handle(handle).status(WriteStatus.QUEUED).build();
+        tickets.put(handle, ticket);
+        boolean accepted;
+        try {
+            accepted = queue.offer(new PendingPerson(handle, person), properties.getOfferTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if(!accepted){
+            tickets.invalidate(handle);
+            rejected.increment();
+            throw new RejectedExecutionException("Write-behind queue is full (" + properties.getQueueCapacity() + " persons)");
+        }
+        return ticket;
+    }
+
+    public Optional<WriteTicketDto> getTicket(String handle){
+        return Optional.ofNullable(tickets.getIfPresent(handle));
+    }
+
+    int queued(){
+        return queue.size();
+    }
+
+    private void drain(){
+        int batchSize = properties.getBatchSize();
+        long flushNanos = properties.getFlushInterval().toNanos();
+        List<PendingPerson> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                PendingPerson first = queue.poll(flushNanos, TimeUnit.NANOSECONDS);
+                if(first == null){
+                    if(!running) break;
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if(batch.size() >= batchSize || remaining <= 0 || !running) break;
+                    PendingPerson next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if(next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException exception) {
+                // Shutdown timed out: write what was taken, stop() writes the rest
+                write(batch);
+                return;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingPerson> batch){
+        if(batch.isEmpty()){
+            return;
+        }
+        try {
+            List<Person> created = personService.insertPersons(batch.stream().map(PendingPerson::person).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                written(batch.get(i), created.get(i));
+            }
+            log.debug("Write-behind batch written | count:{} queued:{}", batch.size(), queue.size());
+        } catch (RuntimeException exception) {
+            log.warn("Write-behind batch failed, writing its {} persons one by one | {}", batch.size(), exception.getMessage());
+            for (PendingPerson pending : batch) {
+                try {
+                    written(pending, personService.createPerson(pending.person()));
+                } catch (RuntimeException single) {
+                    failed.increment();
+                    tickets.put(pending.handle(), WriteTicketDto.builder().handle(pending.handle())
+                            .status(WriteStatus.FAILED).error(single.getMessage()).build());
+                }
+            }
+        }
+    }
+
+    private void written(PendingPerson pending, Person person){
+        written.increment();
+        tickets.put(pending.handle(), WriteTicketDto.builder().handle(pending.handle())
+                .status(WriteStatus.WRITTEN).personId(person.getId()).build());
+    }
+
+    @Override
+    public void start(){
+        if(!properties.isEnabled()){
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "person-write-behind");
+        writer.start();
+        log.info("Write-behind queue started | capacity:{} batchSize:{} flushInterval:{}",
+                properties.getQueueCapacity(), properties.getBatchSize(), properties.getFlushInterval());
+    }
+
+    @Override
+    public void stop(){
+        if(!running){
+            return;
+        }
+        running = false;
+        long timeout = properties.getShutdownTimeout().toMillis();
+        join(timeout);
+        if(writer.isAlive()){
+            writer.interrupt();
+            // The writer writes what it took when interrupted, give it as long again
+            join(timeout);
+        }
+        if(writer.isAlive()){
+            log.warn("Write-behind writer still busy after shutdown timeout, its batch may not be written | queued:{}",
+                    queue.size());
+        }
+        // Persons offered while the writer was exiting
+        List<PendingPerson> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        write(rest);
+        log.info("Write-behind queue drained | written:{} failed:{}", written.sum(), failed.sum());
+    }
+
+    private void join(long millis){
+        try {
+            writer.join(millis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning(){
+        return running;
+    }
+
+    @Override
+    public int getPhase(){
+        return PHASE;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry){
+        Gauge.builder("persons.write.behind.queued", queue, BlockingQueue::size)
+                .description("Persons waiting to be written")
+                .register(registry);
+        FunctionCounter.builder("persons.write.behind.written", written, LongAdder::sum).register(registry);
+        FunctionCounter.builder("persons.write.behind.failed", failed, LongAdder::sum).register(registry);
+        FunctionCounter.builder("persons.write.behind.rejected", rejected, LongAdder::sum)
+                .description("Persons refused because the queue stayed full")
+                .register(registry);
+    }
+}
@@ -0,0 +1,117 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.entities.PersonRow;
+import me.elaamiri.MockitoTutorial.repositories.ReactivePersonRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Non-blocking counterpart of {@link PersonService} for the reactive profile: the same reads and single statement
+ * writes over R2DBC, nothing here ever blocks the event loop. The read-through cache and the name index of the
+ * blocking stack are not involved.
+ */
+@Service
+@Profile("reactive")
+@Slf4j
+public class ReactivePersonService {
+    private final ReactivePersonRepository reactivePersonRepository;
+    // Its own transaction manager: registering one as a bean would replace the JPA one of the blocking services
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactivePersonService(ReactivePersonRepository reactivePersonRepository, ConnectionFactory connectionFactory){
+        this.reactivePersonRepository = reactivePersonRepository;
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    public Mono<Person> getPersonById(long id){
+        return reactivePersonRepository.findById(id).map(PersonRow::toPerson);
+    }
+
+    public Flux<Person> getPersonsPage(long after, int limit){
+        return reactivePersonRepository.findPage(after, limit).map(PersonRow::toPerson);
+    }
+
+    public Flux<Person> streamAllPersons(){
+        return reactivePersonRepository.streamAllOrderedById().map(PersonRow::toPerson);
+    }
+
+    public Mono<Person> createPerson(PersonDto person){
+        log.debug("create Person | {}", person.getFirstName());
+        LocalDateTime now = LocalDateTime.now();
+        // A new row (null version) with an assigned id: save() inserts it
+        return reactivePersonRepository.nextId()
+                .map(id -> PersonRow.builder().id(id)
+                        .firstName(person.getFirstName())
+                        .lastName(person.getLastName())
+                        .birthDate(PersonRow.localDate(person.getBirthDate()))
+                        .creationDate(now)
+                        .lastModificationDate(now).build())
+                .flatMap(reactivePersonRepository::save)
+                .map(PersonRow::toPerson);
+    }
+
+    /**
+     * Single statement update, see {@link PersonService#updatePerson(PersonDto)}: empty when there is no person with
+     * this id, an {@link OptimisticLockingFailureException} when the version of the dto is stale.
+     */
+    public Mono<Person> updatePerson(PersonDto person){
+        log.debug("update Person | {}", person.getFirstName());
+        if(Objects.isNull(person.getId())){
+            log.debug("You are trying to edit a person with no id. Name:{}", person.getFirstName());
+            return Mono.empty();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Mono<Integer> update = Objects.isNull(person.getVersion())
+                ? reactivePersonRepository.updateById(person.getId(), person.getFirstName(), person.getLastName(),
+                        PersonRow.localDate(person.getBirthDate()), PersonRow.localDateTime(person.getCreationDate()), now)
+                : reactivePersonRepository.updateByIdAndVersion(person.getId(), person.getVersion(), person.getFirstName(),
+                        person.getLastName(), PersonRow.localDate(person.getBirthDate()),
+                        PersonRow.localDateTime(person.getCreationDate()), now);
+        return update.flatMap(updated -> {
+            if(updated > 0){
+                return Mono.just(PersonRow.builder().id(person.getId())
+                        .firstName(person.getFirstName())
+                        .lastName(person.getLastName())
+                        .birthDate(PersonRow.localDate(person.getBirthDate()))
+                        .creationDate(PersonRow.localDateTime(person.getCreationDate()))
+                        .lastModificationDate(now)
+                        .version(Objects.isNull(person.getVersion()) ? null : person.getVersion() + 1)
+                        .build().toPerson());
+            }
+            // Only the failure path pays for a second statement
+            if(Objects.isNull(person.getVersion())){
+                return Mono.empty();
+            }
+            return reactivePersonRepository.existsById(person.getId()).flatMap(exists -> exists
+                    ? Mono.error(new OptimisticLockingFailureException("Person " + person.getId()
+                            + " was modified by someone else, version " + person.getVersion() + " is stale"))
+                    : Mono.empty());
+        });
+    }
+
+    // The delete and the tombstone of the change feed in one transaction
+    public Mono<Boolean> deletePersonById(long id){
+        log.debug("delete Person | ID:{}", id);
+        return reactivePersonRepository.removeById(id)
+                .flatMap(deleted -> deleted == 0
+                        ? Mono.just(false)
+                        : reactivePersonRepository.insertTombstone(id, LocalDateTime.now()).thenReturn(true))
+                .as(transactionalOperator::transactional)
+                .onErrorResume(exception -> {
+                    log.error("Can not delete person. ID:{} | {}", id, exception.getMessage());
+                    return Mono.just(false);
+                });
+    }
+}
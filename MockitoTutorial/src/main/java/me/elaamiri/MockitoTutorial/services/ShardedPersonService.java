@@ -0,0 +1,247 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.dtos.SearchField;
+import me.elaamiri.MockitoTutorial.dtos.SearchMode;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonShard;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * {@link PersonService} of the sharded profile: the persons are spread across the {@code persons.sharding.shards}
+ * databases. An id carries its shard ({@code id mod shard count}), so reads and writes by id go to that shard only,
+ * whatever the placement of new persons. Pages, the full list and the searches query every shard at the same time
+ * and merge the ordered results.
+ * <p>
+ * The shard count is fixed: changing it moves persons to other shards (not supported, the databases would have to
+ * be rebuilt). The caches, the name index and the change feed of the default stack are not involved.
+ */
+@Service
+@Profile("sharded")
+@Slf4j
+public class ShardedPersonService implements DisposableBean {
+    private static final Comparator<Person> BY_ID = Comparator.comparing(Person::getId);
+    // Same order as the shards (binary collation of H2, the order of String.compareTo)
+    private static final Comparator<Person> BY_FIRST_NAME = Comparator.comparing(Person::getFirstName,
+            Comparator.nullsFirst(Comparator.<String>naturalOrder())).thenComparing(BY_ID);
+    private static final Comparator<Person> BY_LAST_NAME = Comparator.comparing(Person::getLastName,
+            Comparator.nullsFirst(Comparator.<String>naturalOrder())).thenComparing(BY_ID);
+
+    private final List<PersonShard> shards;
+    private final PersonProperties personProperties;
+    private final PersonProperties.Sharding properties;
+    private final ExecutorService executor;
+
+    public ShardedPersonService(List<PersonShard> shards, PersonProperties personProperties){
+        if(shards.isEmpty()){
+            throw new IllegalStateException("The sharded profile needs persons.sharding.shards");
+        }
+        this.shards = List.copyOf(shards);
+        this.personProperties = personProperties;
+        this.properties = personProperties.getSharding();
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, properties.getParallelism()), task -> {
+            Thread thread = new Thread(task, "shard-query-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getShardCount(){
+        return shards.size();
+    }
+
+    public PersonShard shardOf(long id){
+        return shards.get(Math.floorMod(id, shards.size()));
+    }
+
+    public Optional<Person> getPersonById(long id){
+        return shardOf(id).findById(id);
+    }
+
+    /**
+     * Keyset page ordered by id: the first {@code limit} persons of each shard after {@code after}, merged.
+     */
+    public List<Person> getPersonsPage(long after, int limit){
+        log.debug("Get Persons Page | after:{} limit:{}", after, limit);
+        return merge(gather(shard -> shard.findPage(after, limit)), BY_ID, 0, limit);
+    }
+
+    public List<Person> getAllPersons(){
+        log.debug("Get All Persons ");
+        return merge(gather(PersonShard::findAllOrderedById), BY_ID, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same pages as {@link PersonService#searchPersons}: each shard returns its first {@code offset + size} matches
+     * in the order of the search, the merge skips {@code offset} of them.
+     */
+    public List<Person> searchPersons(String keyword, SearchField field, SearchMode mode, int page, int size){
+        log.debug("Search Persons | {} {} {}", mode, field, keyword);
+        PersonProperties.Search search = personProperties.getSearch();
+        int pageSize = Math.max(1, Math.min(size, search.getMaxPageSize()));
+        long offset = (long) page * pageSize;
+        if(keyword.isEmpty() || page < 0 || offset >= search.getMaxResults()){
+            return List.of();
+        }
+        Comparator<Person> order = mode == SearchMode.PREFIX && field == SearchField.FIRST_NAME ? BY_FIRST_NAME
+                : mode == SearchMode.PREFIX && field == SearchField.LAST_NAME ? BY_LAST_NAME
+                : BY_ID;
+        int limit = (int) offset + pageSize;
+        return merge(gather(shard -> shard.search(keyword, field, mode, limit)), order, offset, pageSize);
+    }
+
+    public Person createPerson(PersonDto person){
+        log.debug("create Person | {}", person.getFirstName());
+        Date now = new Date();
+        PersonShard shard = placement(now);
+        // The sequence of the shard numbers its persons, the id keeps the shard in its remainder
+        long id = shard.nextSequenceValue() * shards.size() + shard.getIndex();
+        Person created = Person.builder().id(id)
+                .firstName(person.getFirstName())
+                .lastName(person.getLastName())
+                .birthDate(person.getBirthDate())
+                .creationDate(now)
+                .lastModificationDate(now)
+                .version(0L)
+                .build();
+        shard.insert(created);
+        return created;
+    }
+
+    private PersonShard placement(Date creationDate){
+        if(properties.getPlacement() == PersonProperties.Sharding.Placement.CREATION_DATE){
+            long bucket = creationDate.getTime() / Math.max(1, properties.getCreationDateBucket().toMillis());
+            return shards.get(Math.floorMod(bucket, shards.size()));
+        }
+        return shards.get(ThreadLocalRandom.current().nextInt(shards.size()));
+    }
+
+    /**
+     * See {@link PersonService#updatePerson(PersonDto)}: null when there is no person with this id, an
+     * {@link OptimisticLockingFailureException} when the version of the dto is stale.
+     */
+    public Person updatePerson(PersonDto person){
+        log.debug("update Person | {}", person.getFirstName());
+        if(Objects.isNull(person.getId())){
+            log.debug("You are trying to edit a person with no id. Name:{}", person.getFirstName());
+            return null;
+        }
+        PersonShard shard = shardOf(person.getId());
+        Person updated = Person.builder().id(person.getId())
+                .firstName(person.getFirstName())
+                .lastName(person.getLastName())
+                .birthDate(person.getBirthDate())
+                .creationDate(person.getCreationDate())
+                .lastModificationDate(new Date())
+                .version(Objects.isNull(person.getVersion()) ? null : person.getVersion() + 1)
+                .build();
+        if(shard.update(updated, person.getVersion()) == 0){
+            if(Objects.nonNull(person.getVersion()) && shard.existsById(person.getId())){
+                throw new OptimisticLockingFailureException("Person " + person.getId()
+                        + " was modified by someone else, version " + person.getVersion() + " is stale");
+            }
+            log.debug("No person with this id. ID:{}", person.getId());
+            return null;
+        }
+        return updated;
+    }
+
+    public boolean deletePersonById(long id){
+        log.debug("delete Person | ID:{}", id);
+        try {
+            return shardOf(id).deleteById(id) > 0;
+        } catch (RuntimeException exception) {
+            log.error("Can not delete person. ID:{} | {}", id, exception.getMessage());
+            return false;
+        }
+    }
+
+    // Runs the query on every shard at the same time, the whole query fails when one shard fails or is too slow
+    private <T> List<T> gather(Function<PersonShard, T> query){
+        List<CompletableFuture<T>> results = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), executor))
+                .toList();
+        Duration timeout = properties.getQueryTimeout();
+        try {
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exception) {
+            results.forEach(result -> result.cancel(true));
+            throw new QueryTimeoutException("A shard did not answer within " + timeout);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying the shards", exception);
+        } catch (ExecutionException exception) {
+            if(exception.getCause() instanceof RuntimeException cause){
+                throw cause;
+            }
+            throw new CompletionException(exception.getCause());
+        }
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * K-way merge of lists sorted by {@code order}: skips {@code skip} persons and returns the next {@code limit}.
+     */
+    static List<Person> merge(List<List<Person>> sortedLists, Comparator<Person> order, long skip, int limit){
+        record Cursor(List<Person> list, int position) {
+            Person head(){
+                return list.get(position);
+            }
+        }
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()),
+                Comparator.comparing(Cursor::head, order));
+        for (List<Person> list : sortedLists) {
+            if(!list.isEmpty()){
+                heads.add(new Cursor(list, 0));
+            }
+        }
+        List<Person> merged = new ArrayList<>();
+        long skipped = 0;
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Cursor cursor = heads.poll();
+            if(skipped < skip){
+                skipped++;
+            } else {
+                merged.add(cursor.head());
+            }
+            if(cursor.position() + 1 < cursor.list().size()){
+                heads.add(new Cursor(cursor.list(), cursor.position() + 1));
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executor.shutdownNow();
+        for (PersonShard shard : shards) {
+            shard.close();
+        }
+    }
+}
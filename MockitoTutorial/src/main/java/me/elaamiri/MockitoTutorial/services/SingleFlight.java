@@ -0,0 +1,137 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Concurrent loads of the same key share a single call of the loader: the first caller (the leader) runs it, the
+ * callers arriving while it runs wait for its result, or its exception. Nothing is kept once the leader is done.
+ * <p>
+ * The flights are registered in a {@link ConcurrentHashMap} (a CAS on an empty bin, otherwise a lock of that bin
+ * only): no lock is held while the loader runs, loads of other keys never wait.
+ */
+final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * Loads the value of the key, or waits for the load in flight. The leader passes the value to {@code publish}
+     * (e.g. to cache it) unless the flight was forgotten meanwhile, atomically with respect to {@link #forget}.
+     */
+    V load(K key, Function<K, V> loader, BiConsumer<K, V> publish){
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = flights.putIfAbsent(key, flight);
+        if(inFlight != null){
+            shared.increment();
+            return join(inFlight);
+        }
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error exception) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(exception);
+            throw exception;
+        }
+        flights.computeIfPresent(key, (k, current) -> {
+            if(current != flight){
+                return current;
+            }
+            publish.accept(k, value);
+            return null;
+        });
+        flight.complete(value);
+        return value;
+    }
+
+    /**
+     * Bulk variant of {@link #load}: the keys without a load in flight are loaded with a single loader call, the
+     * others wait for the load in flight. Each loaded value is published under the same guard as {@link #load}.
+     * The flights of this call are completed before the others are joined, two bulk loads never wait for each other.
+     */
+    Map<K, V> loadAll(Set<K> keys, Function<Set<K>, Map<K, V>> loader, BiConsumer<K, V> publish){
+        Map<K, CompletableFuture<V>> led = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> joined = new LinkedHashMap<>();
+        for (K key : keys) {
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> inFlight = flights.putIfAbsent(key, flight);
+            if(inFlight == null){
+                led.put(key, flight);
+            } else {
+                shared.increment();
+                joined.put(key, inFlight);
+            }
+        }
+        Map<K, V> loaded = Map.of();
+        if(!led.isEmpty()){
+            try {
+                loaded = loader.apply(new LinkedHashSet<>(led.keySet()));
+            } catch (RuntimeException | Error exception) {
+                led.forEach((key, flight) -> {
+                    flights.remove(key, flight);
+                    flight.completeExceptionally(exception);
+                });
+                throw exception;
+            }
+            for (Map.Entry<K, CompletableFuture<V>> entry : led.entrySet()) {
+                CompletableFuture<V> flight = entry.getValue();
+                V value = loaded.get(entry.getKey());
+                flights.computeIfPresent(entry.getKey(), (k, current) -> {
+                    if(current != flight){
+                        return current;
+                    }
+                    if(value != null){
+                        publish.accept(k, value);
+                    }
+                    return null;
+                });
+                flight.complete(value);
+            }
+        }
+        Map<K, V> values = new LinkedHashMap<>();
+        for (K key : keys) {
+            values.put(key, led.containsKey(key) ? loaded.get(key) : join(joined.get(key)));
+        }
+        return values;
+    }
+
+    /**
+     * The load in flight for the key, if any, is not joined anymore and will not publish its value: callers
+     * arriving after a write must not get what was read before it.
+     */
+    void forget(K key){
+        flights.remove(key);
+    }
+
+    // Every load in flight, see forget
+    void forgetAll(){
+        flights.clear();
+    }
+
+    // Loads served by the load of another caller
+    long sharedCount(){
+        return shared.sum();
+    }
+
+    private static <V> V join(CompletableFuture<V> flight){
+        try {
+            return flight.join();
+        } catch (CompletionException exception) {
+            if(exception.getCause() instanceof RuntimeException cause){
+                throw cause;
+            }
+            if(exception.getCause() instanceof Error cause){
+                throw cause;
+            }
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+-- Schema of each shard of the sharded profile, run at startup (idempotent)
+CREATE SEQUENCE IF NOT EXISTS person_seq;
+CREATE TABLE IF NOT EXISTS person (
+    id BIGINT PRIMARY KEY,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    birth_date DATE,
+    creation_date TIMESTAMP(6),
+    last_modification_date TIMESTAMP(6),
+    version BIGINT
+);
+CREATE INDEX IF NOT EXISTS idx_person_first_name ON person (first_name, id);
+CREATE INDEX IF NOT EXISTS idx_person_last_name ON person (last_name, id);
@@ -0,0 +1,135 @@
+package me.elaamiri.MockitoTutorial.controllers;
+
+import jakarta.persistence.EntityManagerFactory;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class PersonConditionalGetTest {
+    private static final String API_BASE_URL = "/api/persons";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PersonService personService;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private Person salima;
+    private Person amine;
+
+    @BeforeEach
+    void setup(){
+        salima = personService.createPerson(PersonDto.builder().firstName("salima").lastName("Gau").build());
+        amine = personService.createPerson(PersonDto.builder().firstName("amine").lastName("Rab").build());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanup(){
+        personRepository.deleteAllInBatch();
+    }
+
+    private MvcResult get(String path, String header, String value) throws Exception{
+        return mockMvc.perform(header == null ? MockMvcRequestBuilders.get(API_BASE_URL + path)
+                        : MockMvcRequestBuilders.get(API_BASE_URL + path).header(header, value))
+                .andReturn();
+    }
+
+    @Test
+    void PersonController_getPerson_notModifiedWithoutReadingThePerson() throws Exception{
+        MvcResult first = get("/" + salima.getId(), null, null);
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertThat(etag).isEqualTo("W/\"0\"");
+        Assertions.assertThat(first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)).isNotNull();
+
+        // Cached person: no statement at all
+        statistics.clear();
+        MvcResult cached = get("/" + salima.getId(), HttpHeaders.IF_NONE_MATCH, etag);
+        Assertions.assertThat(cached.getResponse().getStatus()).isEqualTo(304);
+        Assertions.assertThat(cached.getResponse().getContentAsString()).isEmpty();
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        // Not cached: the version alone is read
+        MvcResult uncached = get("/" + amine.getId(), HttpHeaders.IF_NONE_MATCH, "W/\"0\"");
+        Assertions.assertThat(uncached.getResponse().getStatus()).isEqualTo(304);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void PersonController_getPerson_modifiedAfterUpdate() throws Exception{
+        String etag = get("/" + salima.getId(), null, null).getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = get("/" + salima.getId(), null, null).getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+        Assertions.assertThat(get("/" + salima.getId(), HttpHeaders.IF_MODIFIED_SINCE, lastModified).getResponse().getStatus())
+                .isEqualTo(304);
+
+        personService.updatePerson(PersonDto.builder().id(salima.getId()).firstName("salima2").lastName("Gau").build());
+
+        MvcResult modified = get("/" + salima.getId(), HttpHeaders.IF_NONE_MATCH, etag);
+        Assertions.assertThat(modified.getResponse().getStatus()).isEqualTo(200);
+        Assertions.assertThat(modified.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"1\"");
+        Assertions.assertThat(modified.getResponse().getContentAsString()).contains("salima2");
+    }
+
+    @Test
+    void PersonController_getPerson_modifiedAfterUpdateOfPersonWithoutVersion() throws Exception{
+        // Written outside of this application: no version
+        jdbcTemplate.update("update person set version = null where id = ?", amine.getId());
+        Assertions.assertThat(get("/" + amine.getId(), null, null).getResponse().getHeader(HttpHeaders.ETAG)).isNull();
+        Assertions.assertThat(get("/" + amine.getId(), HttpHeaders.IF_NONE_MATCH, "W/\"null\"").getResponse().getStatus()).isEqualTo(200);
+        Assertions.assertThat(get("/?limit=10", null, null).getResponse().getHeader(HttpHeaders.ETAG)).isNull();
+
+        personService.updatePerson(PersonDto.builder().id(amine.getId()).firstName("amine2").lastName("Rab").build());
+
+        MvcResult modified = get("/" + amine.getId(), HttpHeaders.IF_NONE_MATCH, "W/\"null\"");
+        Assertions.assertThat(modified.getResponse().getStatus()).isEqualTo(200);
+        Assertions.assertThat(modified.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"1\"");
+        Assertions.assertThat(modified.getResponse().getContentAsString()).contains("amine2");
+        Assertions.assertThat(get("/?limit=10", null, null).getResponse().getHeader(HttpHeaders.ETAG)).startsWith("W/\"p2-");
+    }
+
+    @Test
+    void PersonController_getAllPersons_pageEtagChangesWithItsPersons() throws Exception{
+        String etag = get("/?limit=10", null, null).getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertThat(etag).startsWith("W/\"p2-");
+
+        statistics.clear();
+        Assertions.assertThat(get("/?limit=10", HttpHeaders.IF_NONE_MATCH, etag).getResponse().getStatus()).isEqualTo(304);
+        Assertions.assertThat(statistics.getEntityLoadCount()).isZero();
+
+        personService.updatePerson(PersonDto.builder().id(amine.getId()).firstName("amine2").lastName("Rab").build());
+        MvcResult updated = get("/?limit=10", HttpHeaders.IF_NONE_MATCH, etag);
+        Assertions.assertThat(updated.getResponse().getStatus()).isEqualTo(200);
+
+        String updatedEtag = updated.getResponse().getHeader(HttpHeaders.ETAG);
+        personService.deletePersonById(salima.getId());
+        Assertions.assertThat(get("/?limit=10", HttpHeaders.IF_NONE_MATCH, updatedEtag).getResponse().getStatus()).isEqualTo(200);
+        // The summary representation has its own tag
+        Assertions.assertThat(get("/?limit=10&fields=id", null, null).getResponse().getHeader(HttpHeaders.ETAG)).startsWith("W/\"s1-");
+    }
+}
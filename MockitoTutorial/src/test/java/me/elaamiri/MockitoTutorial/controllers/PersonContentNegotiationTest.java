@@ -0,0 +1,100 @@
+package me.elaamiri.MockitoTutorial.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Date;
+import java.util.stream.IntStream;
+
+// Real server: compression is done by Tomcat, MockMvc would not show it
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class PersonContentNegotiationTest {
+    private static final String SMILE = "application/x-jackson-smile";
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private PersonService personService;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setup(){
+        if(personService.getPersonsPage(0L, 1).isEmpty()){
+            Date now = new Date();
+            personService.createPersons(IntStream.range(0, 100)
+                    .mapToObj(i -> PersonDto.builder().firstName("first" + i).lastName("last" + i)
+                            .birthDate(now).creationDate(now).build())
+                    .toList(), null);
+        }
+    }
+
+    private HttpResponse<byte[]> get(String accept, String acceptEncoding) throws IOException, InterruptedException{
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/persons/?limit=100"))
+                .header(HttpHeaders.ACCEPT, accept);
+        if(acceptEncoding != null) request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private Person[] decode(ObjectMapper mapper, HttpResponse<byte[]> response) throws IOException{
+        return mapper.readValue(response.body(), Person[].class);
+    }
+
+    @Test
+    void PersonController_getAllPersons_negotiateBinaryEncodings() throws Exception{
+        HttpResponse<byte[]> json = get(MediaType.APPLICATION_JSON_VALUE, null);
+        HttpResponse<byte[]> smile = get(SMILE, null);
+        HttpResponse<byte[]> cbor = get(MediaType.APPLICATION_CBOR_VALUE, null);
+
+        Assertions.assertThat(smile.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue(SMILE);
+        Assertions.assertThat(cbor.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue(MediaType.APPLICATION_CBOR_VALUE);
+        Person[] expected = decode(new ObjectMapper(), json);
+        Assertions.assertThat(expected).hasSize(100);
+        Assertions.assertThat(decode(new SmileMapper(), smile)).containsExactly(expected);
+        Assertions.assertThat(decode(new CBORMapper(), cbor)).containsExactly(expected);
+        Assertions.assertThat(smile.body().length).isLessThan(json.body().length);
+        Assertions.assertThat(cbor.body().length).isLessThan(json.body().length);
+    }
+
+    @Test
+    void PersonController_getAllPersons_compressLargeResponses() throws Exception{
+        HttpResponse<byte[]> plain = get(MediaType.APPLICATION_JSON_VALUE, null);
+        HttpResponse<byte[]> gzipped = get(MediaType.APPLICATION_JSON_VALUE, "gzip");
+
+        Assertions.assertThat(plain.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+        Assertions.assertThat(gzipped.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        Assertions.assertThat(gzipped.body().length).isLessThan(plain.body().length / 2);
+    }
+
+    @Test
+    void PersonController_createPerson_readSmileBody() throws Exception{
+        byte[] body = new SmileMapper().writeValueAsBytes(PersonDto.builder().firstName("salima").lastName("Gau").build());
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/persons/"))
+                .header(HttpHeaders.CONTENT_TYPE, SMILE)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assertions.assertThat(response.statusCode()).isEqualTo(201);
+        Assertions.assertThat(response.body()).contains("\"firstName\":\"salima\"");
+    }
+}
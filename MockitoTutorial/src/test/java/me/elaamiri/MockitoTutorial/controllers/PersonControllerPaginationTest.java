@@ -0,0 +1,186 @@
+package me.elaamiri.MockitoTutorial.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.elaamiri.MockitoTutorial.dtos.PersonLookupDto;
+import me.elaamiri.MockitoTutorial.dtos.PersonSummary;
+import me.elaamiri.MockitoTutorial.dtos.WriteStatus;
+import me.elaamiri.MockitoTutorial.dtos.WriteTicketDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import me.elaamiri.MockitoTutorial.services.PersonWriteBehindQueue;
+import org.assertj.core.util.Lists;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+@ExtendWith(MockitoExtension.class) // JUnit 5
+class PersonControllerPaginationTest {
+    private MockMvc mockMvc;
+
+    @Mock
+    private PersonService personService;
+    @Mock
+    private PersonWriteBehindQueue personWriteBehindQueue;
+
+    private Person person1;
+    private Person person2;
+
+    private static final String API_BASE_URL = "/api/persons";
+
+    @BeforeEach
+    void setup(){
+        mockMvc = MockMvcBuilders.standaloneSetup(new PersonController(personService, new ObjectMapper(), personWriteBehindQueue)).build();
+        person1 = Person.builder().id(1L).firstName("salima").lastName("Gau").build();
+        person2 = Person.builder().id(2L).firstName("amine").lastName("Rab").build();
+    }
+
+    @Test
+    void PersonController_getAllPersons_returnPageWithNextLink() throws Exception{
+        Mockito.when(personService.getPersonsPage(0L, 2)).thenReturn(Lists.list(person1, person2));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/").param("limit", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$", Matchers.hasSize(2)))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.LINK,
+                        "<http://localhost/api/persons/?after=2&limit=2>; rel=\"next\""));
+    }
+
+    @Test
+    void PersonController_getAllPersons_returnLastPageWithoutNextLink() throws Exception{
+        Mockito.when(personService.getPersonsPage(1L, 2)).thenReturn(Lists.list(person2));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/").param("after", "1").param("limit", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(2))
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    void PersonController_getAllPersons_capLimitToMaxPageSize() throws Exception{
+        Mockito.when(personService.getPersonsPage(0L, PersonController.MAX_PAGE_SIZE)).thenReturn(Lists.list(person1));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/").param("limit", "1000000"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        Mockito.verify(personService).getPersonsPage(0L, PersonController.MAX_PAGE_SIZE);
+    }
+
+    @Test
+    void PersonController_getAllPersons_readSummariesWhenOnlyNamesAreRequested() throws Exception{
+        Mockito.when(personService.getPersonSummariesPage(0L, 1)).thenReturn(Lists.list(new PersonSummary(1L, "salima", "Gau", 0L)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/?limit=1&fields=id,firstName"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].lastName").value("Gau"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].birthDate").doesNotExist())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.LINK,
+                        "<http://localhost/api/persons/?fields=id,firstName&after=1&limit=1>; rel=\"next\""))
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG));
+
+        Mockito.verify(personService, Mockito.never()).getPersonsPage(Mockito.anyLong(), Mockito.anyInt());
+        // The ETag is computed from the versions of the summaries themselves
+        Mockito.verify(personService, Mockito.never()).getPersonVersionsPage(Mockito.anyLong(), Mockito.anyInt());
+    }
+
+    @Test
+    void PersonController_getAllPersons_readEntitiesWhenOtherFieldsAreRequested() throws Exception{
+        Mockito.when(personService.getPersonsPage(0L, PersonController.DEFAULT_PAGE_SIZE)).thenReturn(Lists.list(person1));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/").param("fields", "id,birthDate"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        Mockito.verify(personService, Mockito.never()).getPersonSummariesPage(Mockito.anyLong(), Mockito.anyInt());
+    }
+
+    @Test
+    void PersonController_getAllPersons_rejectUnknownField() throws Exception{
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/").param("fields", "id,salary"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void PersonController_lookupPersons_returnOneEntryPerId() throws Exception{
+        Mockito.when(personService.lookupPersons(List.of(2L, 9L))).thenReturn(List.of(
+                PersonLookupDto.builder().id(2L).found(true).person(person2).build(),
+                PersonLookupDto.builder().id(9L).found(false).build()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/lookup").param("ids", "2,9"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].person.firstName").value("amine"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].found").value(false));
+    }
+
+    @Test
+    void PersonController_lookupPersons_rejectTooManyIds() throws Exception{
+        String ids = LongStream.rangeClosed(0, PersonController.MAX_LOOKUP_IDS).mapToObj(String::valueOf)
+                .collect(Collectors.joining(",", "[", "]"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post(API_BASE_URL + "/lookup").contentType(MediaType.APPLICATION_JSON).content(ids))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void PersonController_createPerson_acceptWithTicketInWriteBehindMode() throws Exception{
+        Mockito.when(personWriteBehindQueue.isEnabled()).thenReturn(true);
+        Mockito.when(personWriteBehindQueue.submit(Mockito.any()))
+                .thenReturn(WriteTicketDto.builder().handle("h1").status(WriteStatus.QUEUED).build());
+
+        mockMvc.perform(MockMvcRequestBuilders.post(API_BASE_URL + "/")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"firstName\":\"salima\"}"))
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.LOCATION, "http://localhost/api/persons/pending/h1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("QUEUED"));
+
+        Mockito.verify(personService, Mockito.never()).createPerson(Mockito.any());
+    }
+
+    @Test
+    void PersonController_createPerson_serviceUnavailableWhenQueueIsFull() throws Exception{
+        Mockito.when(personWriteBehindQueue.isEnabled()).thenReturn(true);
+        Mockito.when(personWriteBehindQueue.submit(Mockito.any())).thenThrow(new RejectedExecutionException("full"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post(API_BASE_URL + "/")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"firstName\":\"salima\"}"))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void PersonController_streamAllPersons_returnOnePersonPerLine() throws Exception{
+        Mockito.doAnswer(invocation -> {
+            Consumer<Person> consumer = invocation.getArgument(0);
+            consumer.accept(person1);
+            consumer.accept(person2);
+            return null;
+        }).when(personService).streamAllPersons(Mockito.any(Consumer.class));
+
+        // StreamingResponseBody is written asynchronously
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/stream"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.matchesPattern(
+                        "\\{\"id\":1,[^\\n]*\"firstName\":\"salima\"[^\\n]*}\\n\\{\"id\":2,[^\\n]*}\\n")));
+    }
+}
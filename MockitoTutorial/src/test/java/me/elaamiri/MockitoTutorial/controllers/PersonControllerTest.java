@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.json.JsonMapper;
 import me.elaamiri.MockitoTutorial.dtos.PersonDto;
 import me.elaamiri.MockitoTutorial.entities.Person;
 import me.elaamiri.MockitoTutorial.services.PersonService;
+import me.elaamiri.MockitoTutorial.services.PersonWriteBehindQueue;
 import org.assertj.core.util.Lists;
 import org.hamcrest.Matchers;
 import org.junit.Before;
@@ -48,6 +49,8 @@ public class PersonControllerTest {
     //@MockBean // with @WebMvcTest JUnit 5
     @Mock
     private PersonService personService;
+    @Mock
+    private PersonWriteBehindQueue personWriteBehindQueue;
     @InjectMocks
     private PersonController personController;
 
@@ -68,7 +71,7 @@ public class PersonControllerTest {
     @Test
     public void PersonController_getAllPersons_returnNotEmptyList() throws Exception{
         // Mock the service Behavior
-        Mockito.when(personService.getAllPersons()).thenReturn(Lists.list(person1));
+        Mockito.when(personService.getPersonsPage(Mockito.anyLong(), Mockito.anyInt())).thenReturn(Lists.list(person1));
         // Act & Assert
         mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL+"/"))
                 .andExpect(MockMvcResultMatchers.status().isOk())
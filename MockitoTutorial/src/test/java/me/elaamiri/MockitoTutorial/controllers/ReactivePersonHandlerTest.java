@@ -0,0 +1,159 @@
+package me.elaamiri.MockitoTutorial.controllers;
+
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import me.elaamiri.MockitoTutorial.repositories.PersonTombstoneRepository;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactivePersonHandlerTest {
+    private static final String API_BASE_URL = "/api/persons";
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private PersonService personService;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private PersonTombstoneRepository personTombstoneRepository;
+
+    @AfterEach
+    void cleanup(){
+        personRepository.deleteAllInBatch();
+        personTombstoneRepository.deleteAllInBatch();
+    }
+
+    private void seed(int count){
+        personService.createPersons(IntStream.range(0, count)
+                .mapToObj(i -> PersonDto.builder().firstName("first" + i).lastName("last" + i).build())
+                .toList(), null);
+    }
+
+    private Person post(String firstName){
+        return webTestClient.post().uri(API_BASE_URL + "/")
+                .bodyValue(PersonDto.builder().firstName(firstName).lastName("Rab").build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Person.class).returnResult().getResponseBody();
+    }
+
+    @Test
+    void ReactivePersonHandler_getAllPersons_keysetPageWithNextLink(){
+        seed(5);
+
+        List<Person> page = webTestClient.get().uri(API_BASE_URL + "/?limit=3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueMatches(HttpHeaders.LINK, "<(http://localhost(:\\d+)?)?/api/persons/\\?after=\\d+&limit=3>; rel=\"next\"")
+                .expectBodyList(Person.class).returnResult().getResponseBody();
+        Assertions.assertThat(page).extracting(Person::getFirstName).containsExactly("first0", "first1", "first2");
+
+        List<Person> last = webTestClient.get().uri(API_BASE_URL + "/?limit=3&after=" + page.get(2).getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.LINK)
+                .expectBodyList(Person.class).returnResult().getResponseBody();
+        Assertions.assertThat(last).extracting(Person::getFirstName).containsExactly("first3", "first4");
+    }
+
+    @Test
+    void ReactivePersonHandler_streamAllPersons_ndjsonInIdOrder(){
+        seed(ReactivePersonHandler.STREAM_PREFETCH * 3);
+
+        List<Person> persons = webTestClient.get().uri(API_BASE_URL + "/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Person.class).getResponseBody().collectList().block();
+        Assertions.assertThat(persons).hasSize(ReactivePersonHandler.STREAM_PREFETCH * 3);
+        Assertions.assertThat(persons).extracting(Person::getId).isSorted();
+    }
+
+    @Test
+    void ReactivePersonHandler_createPerson_idsNeverCollideWithJpaInserts(){
+        // JPA, R2DBC, JPA again across several blocks of the pooled sequence
+        seed(120);
+        Person reactive = post("amine");
+        seed(120);
+        Person again = post("salima");
+
+        Assertions.assertThat(personRepository.count()).isEqualTo(242);
+        Assertions.assertThat(personRepository.findById(reactive.getId())).get()
+                .extracting(Person::getFirstName).isEqualTo("amine");
+        Assertions.assertThat(personRepository.findById(again.getId())).get()
+                .extracting(Person::getFirstName).isEqualTo("salima");
+        Assertions.assertThat(reactive.getVersion()).isZero();
+    }
+
+    @Test
+    void ReactivePersonHandler_getPerson_sameJsonAsTheBlockingApi(){
+        Person created = personService.createPerson(PersonDto.builder().firstName("salima").lastName("Gau").build());
+
+        webTestClient.get().uri(API_BASE_URL + "/" + created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(created.getId())
+                .jsonPath("$.firstName").isEqualTo("salima")
+                .jsonPath("$.version").isEqualTo(0)
+                .jsonPath("$.creationDate").isNotEmpty();
+
+        webTestClient.get().uri(API_BASE_URL + "/" + (created.getId() + 1000))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void ReactivePersonHandler_updatePerson_conflictOnStaleVersion(){
+        Person created = post("amine");
+        PersonDto update = PersonDto.builder().id(created.getId()).firstName("amine2").lastName("Rab").version(0L).build();
+
+        webTestClient.put().uri(API_BASE_URL + "/").bodyValue(update)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.version").isEqualTo(1);
+        webTestClient.put().uri(API_BASE_URL + "/").bodyValue(update)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        Assertions.assertThat(personRepository.findById(created.getId())).get()
+                .extracting(Person::getFirstName, Person::getVersion).containsExactly("amine2", 1L);
+    }
+
+    @Test
+    void ReactivePersonHandler_deletePerson_leavesTombstone(){
+        Person created = post("amine");
+
+        webTestClient.delete().uri(API_BASE_URL + "/" + created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Boolean.class).isEqualTo(true);
+        webTestClient.delete().uri(API_BASE_URL + "/" + created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Boolean.class).isEqualTo(false);
+
+        Assertions.assertThat(personRepository.existsById(created.getId())).isFalse();
+        Assertions.assertThat(personTombstoneRepository.existsById(created.getId())).isTrue();
+    }
+}
@@ -0,0 +1,80 @@
+package me.elaamiri.MockitoTutorial.controllers;
+
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.services.ShardedPersonService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest
+@ActiveProfiles("sharded")
+@AutoConfigureMockMvc
+class ShardedPersonControllerTest {
+    private static final String API_BASE_URL = "/api/persons";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ShardedPersonService shardedPersonService;
+
+    private final List<Person> created = new ArrayList<>();
+
+    @AfterEach
+    void cleanup(){
+        created.forEach(person -> shardedPersonService.deletePersonById(person.getId()));
+    }
+
+    private Person create(String firstName){
+        Person person = shardedPersonService.createPerson(PersonDto.builder().firstName(firstName).lastName("Gaudin").build());
+        created.add(person);
+        return person;
+    }
+
+    @Test
+    void ShardedPersonController_getAllPersons_pageAcrossShards() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            ids.add(create("first" + i).getId());
+        }
+        ids.sort(null);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/?limit=5"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(5))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(ids.get(0)))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.LINK,
+                        "<http://localhost" + API_BASE_URL + "/?after=" + ids.get(4) + "&limit=5>; rel=\"next\""));
+    }
+
+    @Test
+    void ShardedPersonController_createThenGetAndSearch() throws Exception {
+        String body = mockMvc.perform(MockMvcRequestBuilders.post(API_BASE_URL + "/")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Salima\",\"lastName\":\"Gaudin\"}"))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = Long.parseLong(body.replaceAll(".*\"id\":(\\d+).*", "$1"));
+        created.add(Person.builder().id(id).build());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/" + id))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.firstName").value("Salima"));
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/search?q=sali&mode=CONTAINS"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(id));
+        mockMvc.perform(MockMvcRequestBuilders.put(API_BASE_URL + "/")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":" + id + ",\"version\":5,\"firstName\":\"Nadia\"}"))
+                .andExpect(MockMvcResultMatchers.status().isConflict());
+    }
+}
@@ -0,0 +1,103 @@
+package me.elaamiri.MockitoTutorial.load;
+
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.MockitoTutorialApplication;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.metrics.SqlStatementCounter;
+import me.elaamiri.MockitoTutorial.services.PersonCache;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hot key: {@code CONCURRENCY} clients read the same person back to back while a writer updates it every
+ * {@code WRITE_INTERVAL} (each write invalidates it), with and without single-flight, cache on and off.
+ * Reports the SQL statements run per lookup next to the latency percentiles. With single-flight the lookups share
+ * loads (and, cache off, run fewer statements than without), without it none is shared.
+ * Run with: mvn -P loadtest test -Dtest=HotKeyLoadTest
+ */
+@Tag("load")
+@Slf4j
+class HotKeyLoadTest {
+    private static final int CONCURRENCY = 32;
+    private static final Duration WRITE_INTERVAL = Duration.ofMillis(10);
+
+    private record Run(LoadResult result, long statements, long lookups, long sharedLoads) {
+        double statementsPerLookup(){
+            return statements / (double) lookups;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("%s statements=%d statements/lookup=%.4f sharedLoads=%d",
+                    result, statements, statementsPerLookup(), sharedLoads);
+        }
+    }
+
+    @Test
+    void PersonService_getPersonById_hotKeyWithAndWithoutSingleFlight() throws Exception {
+        List<Run> runs = new ArrayList<>();
+        for (boolean cache : new boolean[]{false, true}) {
+            Run without = runWith(cache, false);
+            Run with = runWith(cache, true);
+            runs.add(without);
+            runs.add(with);
+            Assertions.assertThat(without.sharedLoads()).isZero();
+            Assertions.assertThat(with.sharedLoads()).isPositive();
+            if(!cache){
+                // Every lookup reads the row without single-flight, the waiters of a shared load read nothing
+                Assertions.assertThat(with.statementsPerLookup()).isLessThan(without.statementsPerLookup());
+            }
+        }
+        runs.forEach(run -> log.warn("{}", run));
+    }
+
+    private Run runWith(boolean cache, boolean singleFlight) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MockitoTutorialApplication.class)
+                .run("--persons.cache.enabled=" + cache, "--persons.cache.single-flight=" + singleFlight,
+                        "--server.port=0", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                        "--spring.datasource.generate-unique-name=true")) {
+            PersonService personService = context.getBean(PersonService.class);
+            long id = personService.createPerson(PersonDto.builder().firstName("Salima").lastName("Gaudin").build()).getId();
+            LongAdder lookups = new LongAdder();
+            LongAdder statements = new LongAdder();
+            AtomicBoolean running = new AtomicBoolean(true);
+            Thread writer = new Thread(() -> {
+                for (int i = 0; running.get(); i++) {
+                    personService.updatePerson(PersonDto.builder().id(id).firstName("Salima" + i).lastName("Gaudin").build());
+                    try {
+                        Thread.sleep(WRITE_INTERVAL.toMillis());
+                    } catch (InterruptedException exception) {
+                        return;
+                    }
+                }
+            }, "hot-key-writer");
+            writer.start();
+            LoadResult result;
+            try {
+                String name = "hot-key/cache-" + (cache ? "on" : "off") + "/single-flight-" + (singleFlight ? "on" : "off");
+                result = LoadGenerator.run(name, CONCURRENCY, Duration.ofSeconds(3), Duration.ofSeconds(10), () -> {
+                    SqlStatementCounter.reset();
+                    boolean found = personService.getPersonById(id).isPresent();
+                    lookups.increment();
+                    statements.add(SqlStatementCounter.count());
+                    return found;
+                });
+            } finally {
+                running.set(false);
+                writer.join();
+            }
+            Assertions.assertThat(result.errors()).isZero();
+            return new Run(result, statements.sum(), lookups.sum(), context.getBean(PersonCache.class).stats().getSharedLoadCount());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package me.elaamiri.MockitoTutorial.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Closed-loop load generator: a fixed number of workers send requests back to back for a fixed time,
+ * after a warmup whose requests are not recorded.
+ */
+public final class LoadGenerator {
+    private LoadGenerator(){
+    }
+
+    /**
+     * @param request sends one request and returns true when it succeeded
+     */
+    public static LoadResult run(String name, int concurrency, Duration warmup, Duration duration,
+                                 Callable<Boolean> request) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long deadline = measureFrom + duration.toNanos();
+        List<Worker> workers = new ArrayList<>(concurrency);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Worker worker = new Worker(request, measureFrom, deadline, done);
+            workers.add(worker);
+            Thread thread = new Thread(worker, name + "-load-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        long requests = 0;
+        long errors = 0;
+        for (Worker worker : workers) {
+            requests += worker.count;
+            errors += worker.errors;
+        }
+        long[] latencies = new long[(int) requests];
+        int at = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, at, worker.count);
+            at += worker.count;
+        }
+        Arrays.sort(latencies);
+        double seconds = duration.toNanos() / 1e9;
+        return new LoadResult(name, concurrency, requests, errors, requests / seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1000);
+    }
+
+    private static long percentile(long[] sortedNanos, double percentile){
+        if(sortedNanos.length == 0){
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1000;
+    }
+
+    private static final class Worker implements Runnable {
+        private final Callable<Boolean> request;
+        private final long measureFrom;
+        private final long deadline;
+        private final CountDownLatch done;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        private Worker(Callable<Boolean> request, long measureFrom, long deadline, CountDownLatch done){
+            this.request = request;
+            this.measureFrom = measureFrom;
+            this.deadline = deadline;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long now;
+                while ((now = System.nanoTime()) < deadline) {
+                    boolean ok;
+                    try {
+                        ok = request.call();
+                    } catch (Exception exception) {
+                        ok = false;
+                    }
+                    long end = System.nanoTime();
+                    if(now >= measureFrom){
+                        record(end - now, ok);
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private void record(long latency, boolean ok){
+            if(count == latencies.length){
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+            if(!ok){
+                errors++;
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package me.elaamiri.MockitoTutorial.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Machine-readable outcome of a load suite, written as JSON. A report can be compared with a baseline report
+ * (a previous run on the same machine) to find the runs that regressed.
+ */
+public record LoadReport(String createdAt, int seededPersons, long warmupSeconds, long durationSeconds,
+                         List<LoadResult> results) {
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public void write(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        MAPPER.writeValue(path.toFile(), this);
+    }
+
+    public static Optional<LoadReport> read(Path path) throws IOException {
+        if(!Files.exists(path)){
+            return Optional.empty();
+        }
+        return Optional.of(MAPPER.readValue(path.toFile(), LoadReport.class));
+    }
+
+    /**
+     * Runs (same name and concurrency) whose throughput dropped, or whose p99 grew, by more than the threshold
+     * (0.2 for 20%) against the baseline. p99 growths below {@code latencyFloorMicros} are noise and ignored.
+     * Runs missing from the baseline are not compared.
+     */
+    public List<String> regressionsAgainst(LoadReport baseline, double threshold, long latencyFloorMicros){
+        Map<String, LoadResult> before = baseline.results().stream()
+                .collect(Collectors.toMap(LoadReport::key, Function.identity(), (first, second) -> second));
+        List<String> regressions = new ArrayList<>();
+        for (LoadResult result : results) {
+            LoadResult previous = before.get(key(result));
+            if(previous == null){
+                continue;
+            }
+            if(result.throughput() < previous.throughput() * (1 - threshold)){
+                regressions.add(String.format("%s throughput %.1f -> %.1f req/s", key(result),
+                        previous.throughput(), result.throughput()));
+            }
+            if(result.p99Micros() > previous.p99Micros() * (1 + threshold)
+                    && result.p99Micros() - previous.p99Micros() > latencyFloorMicros){
+                regressions.add(String.format("%s p99 %d -> %d us", key(result), previous.p99Micros(), result.p99Micros()));
+            }
+            if(result.errors() > 0 && previous.errors() == 0){
+                regressions.add(String.format("%s errors 0 -> %d", key(result), result.errors()));
+            }
+        }
+        return regressions;
+    }
+
+    private static String key(LoadResult result){
+        return result.name() + "@" + result.concurrency();
+    }
+}
@@ -0,0 +1,52 @@
+package me.elaamiri.MockitoTutorial.load;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+class LoadReportTest {
+    private final LoadReport baseline = report(
+            new LoadResult("read", 8, 10_000, 0, 1000.0, 500, 4_000, 9_000, 20_000),
+            new LoadResult("list", 8, 5_000, 0, 500.0, 900, 2_000, 5_000, 9_000));
+
+    private static LoadReport report(LoadResult... results){
+        return new LoadReport("2026-10-18T00:00:00Z", 10_000, 3, 10, List.of(results));
+    }
+
+    @Test
+    void LoadReport_regressionsAgainst_withinThresholdPasses(){
+        LoadReport current = report(
+                new LoadResult("read", 8, 9_000, 0, 900.0, 550, 4_800, 9_000, 20_000),
+                // Not in the baseline
+                new LoadResult("write", 8, 100, 0, 10.0, 50_000, 90_000, 90_000, 90_000));
+
+        Assertions.assertThat(current.regressionsAgainst(baseline, 0.25, 1_000)).isEmpty();
+    }
+
+    @Test
+    void LoadReport_regressionsAgainst_throughputP99AndErrors(){
+        LoadReport current = report(
+                new LoadResult("read", 8, 7_000, 3, 700.0, 500, 4_000, 9_000, 20_000),
+                // p99 +50% but only 1ms more: noise
+                new LoadResult("list", 8, 5_000, 0, 500.0, 900, 3_000, 5_000, 9_000));
+        LoadReport slower = report(new LoadResult("list", 8, 5_000, 0, 500.0, 900, 6_000, 9_000, 9_000));
+
+        Assertions.assertThat(current.regressionsAgainst(baseline, 0.25, 1_000))
+                .containsExactly("read@8 throughput 1000.0 -> 700.0 req/s", "read@8 errors 0 -> 3");
+        Assertions.assertThat(slower.regressionsAgainst(baseline, 0.25, 1_000))
+                .containsExactly("list@8 p99 2000 -> 6000 us");
+    }
+
+    @Test
+    void LoadReport_writeRead_roundTrip(@TempDir Path directory) throws Exception {
+        Path path = directory.resolve("report.json");
+
+        baseline.write(path);
+
+        Assertions.assertThat(LoadReport.read(path)).contains(baseline);
+        Assertions.assertThat(LoadReport.read(directory.resolve("missing.json"))).isEmpty();
+    }
+}
@@ -0,0 +1,14 @@
+package me.elaamiri.MockitoTutorial.load;
+
+/**
+ * Outcome of one load run: throughput and latency percentiles in microseconds.
+ */
+public record LoadResult(String name, int concurrency, long requests, long errors, double throughput,
+                         long p50Micros, long p99Micros, long p999Micros, long maxMicros) {
+
+    @Override
+    public String toString() {
+        return String.format("%-40s concurrency=%-5d requests=%-8d errors=%-5d throughput=%10.1f req/s p50=%dus p99=%dus p99.9=%dus max=%dus",
+                name, concurrency, requests, errors, throughput, p50Micros, p99Micros, p999Micros, maxMicros);
+    }
+}
@@ -0,0 +1,137 @@
+package me.elaamiri.MockitoTutorial.load;
+
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.MockitoTutorialApplication;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * End-to-end cost of api/persons: the application on embedded H2, seeded with {@code load.persons} persons, is
+ * driven over HTTP by each workload (read by id, keyset list, create, and a 80/15/5 mix of them) at each of the
+ * {@code load.concurrency} levels. The report goes to target/load-report.json and is compared with the baseline
+ * src/test/resources/load-baseline.json, regressions past {@code load.regression-threshold} fail the test when
+ * {@code load.fail-on-regression} is set (mvn -P perf test).
+ * <p>
+ * The baseline only means something on the machine that recorded it (none is checked in), record it there with
+ * {@code mvn -P perf test -Dload.update-baseline=true} and again after an intended performance change.
+ */
+@Tag("load")
+@Slf4j
+class PersonApiLoadTest {
+    private static final int SEEDED_PERSONS = Integer.getInteger("load.persons", 10_000);
+    private static final int[] CONCURRENCY = Arrays.stream(System.getProperty("load.concurrency", "1,8,32").split(","))
+            .map(String::trim).mapToInt(Integer::parseInt).toArray();
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 3));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.duration-seconds", 10));
+    private static final Path REPORT = Path.of(System.getProperty("load.report", "target/load-report.json"));
+    private static final Path BASELINE = Path.of(System.getProperty("load.baseline", "src/test/resources/load-baseline.json"));
+    private static final double THRESHOLD = Double.parseDouble(System.getProperty("load.regression-threshold", "0.25"));
+    // p99 growths under a millisecond are noise at these latencies
+    private static final long LATENCY_FLOOR_MICROS = 1_000;
+
+    private HttpClient client;
+    private String baseUrl;
+    private long firstId;
+
+    @Test
+    void PersonController_mixedWorkloads_noRegressionAgainstBaseline() throws Exception {
+        List<LoadResult> results = new ArrayList<>();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MockitoTutorialApplication.class)
+                .run("--server.port=0", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                        "--spring.datasource.generate-unique-name=true")) {
+            PersonService personService = context.getBean(PersonService.class);
+            personService.createPersons(IntStream.range(0, SEEDED_PERSONS)
+                    .mapToObj(i -> PersonDto.builder().firstName("first" + i).lastName("last" + i).build())
+                    .toList(), null);
+            firstId = personService.getPersonsPage(0, 1).stream().findFirst().map(Person::getId).orElseThrow();
+            client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/persons/";
+
+            Map<String, Callable<Boolean>> workloads = new LinkedHashMap<>();
+            workloads.put("read", this::read);
+            workloads.put("list", this::list);
+            workloads.put("write", this::write);
+            workloads.put("mixed", () -> {
+                int dice = ThreadLocalRandom.current().nextInt(100);
+                return dice < 80 ? read() : dice < 95 ? list() : write();
+            });
+            for (Map.Entry<String, Callable<Boolean>> workload : workloads.entrySet()) {
+                for (int concurrency : CONCURRENCY) {
+                    LoadResult result = LoadGenerator.run(workload.getKey(), concurrency, WARMUP, DURATION, workload.getValue());
+                    log.warn("{}", result);
+                    results.add(result);
+                }
+            }
+        }
+
+        LoadReport report = new LoadReport(Instant.now().toString(), SEEDED_PERSONS, WARMUP.toSeconds(),
+                DURATION.toSeconds(), results);
+        report.write(REPORT);
+        if(Boolean.getBoolean("load.update-baseline")){
+            report.write(BASELINE);
+            log.warn("Baseline recorded | {}", BASELINE.toAbsolutePath());
+            return;
+        }
+        Optional<LoadReport> baseline = LoadReport.read(BASELINE);
+        List<String> regressions = baseline
+                .map(previous -> report.regressionsAgainst(previous, THRESHOLD, LATENCY_FLOOR_MICROS))
+                .orElse(List.of());
+        regressions.forEach(regression -> log.warn("Regression | {}", regression));
+        Assertions.assertThat(results).allSatisfy(result -> Assertions.assertThat(result.errors()).isZero());
+        if(Boolean.getBoolean("load.fail-on-regression")){
+            Assertions.assertThat(baseline)
+                    .as("no baseline at %s, record it with -Dload.update-baseline=true", BASELINE.toAbsolutePath())
+                    .isPresent();
+            Assertions.assertThat(regressions).as("regressions past %.0f%%", THRESHOLD * 100).isEmpty();
+        }
+    }
+
+    private long randomId(){
+        return firstId + ThreadLocalRandom.current().nextLong(SEEDED_PERSONS);
+    }
+
+    private boolean read() throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + randomId())).GET().build()) == 200;
+    }
+
+    // Keyset pages are not cached
+    private boolean list() throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "?limit=20&after=" + randomId())).GET().build()) == 200;
+    }
+
+    private boolean write() throws Exception {
+        int n = ThreadLocalRandom.current().nextInt(1_000_000);
+        String body = "{\"firstName\":\"load" + n + "\",\"lastName\":\"write" + n + "\"}";
+        return send(HttpRequest.newBuilder(URI.create(baseUrl))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build()) == 201;
+    }
+
+    private int send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,67 @@
+package me.elaamiri.MockitoTutorial.load;
+
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.MockitoTutorialApplication;
+import me.elaamiri.MockitoTutorial.dtos.ImportResultDto;
+import me.elaamiri.MockitoTutorial.services.PersonImportService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * POST api/persons/import of a large CSV file ({@code load.persons} rows) with 1 then 4 insert transactions at a
+ * time. Reports rows/sec and the peak heap (the embedded H2 database, which holds the rows, included).
+ * Run with: mvn -P loadtest test -Dtest=PersonImportLoadTest
+ */
+@Tag("load")
+@Slf4j
+class PersonImportLoadTest {
+    private static final int ROWS = Integer.getInteger("load.persons", 1_000_000);
+    private static final Path DIRECTORY = Path.of("target/load-imports");
+
+    @Test
+    void PersonImportService_importPersons_rowsPerSecondByParallelism() throws Exception {
+        Files.createDirectories(DIRECTORY);
+        Path file = DIRECTORY.resolve("persons.csv");
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+            writer.write("firstName,lastName,birthDate\n");
+            for (int i = 0; i < ROWS; i++) {
+                writer.write("first" + i + ",last" + i + ",1990-01-" + (10 + i % 20) + "\n");
+            }
+        }
+        log.warn("{} rows, {} MB", ROWS, Files.size(file) >> 20);
+
+        for (int parallelism : new int[]{1, 4}) {
+            ImportResultDto result = runWith(parallelism);
+            Assertions.assertThat(result.getImported()).isEqualTo(ROWS);
+        }
+    }
+
+    private ImportResultDto runWith(int parallelism) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MockitoTutorialApplication.class)
+                .run("--persons.bulk-import.directory=" + DIRECTORY, "--persons.bulk-import.parallelism=" + parallelism,
+                        "--server.port=0", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                        "--spring.datasource.generate-unique-name=true", "--persons.search.trigram-index-enabled=false")) {
+            System.gc();
+            ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+            ImportResultDto result = context.getBean(PersonImportService.class).importPersons("persons.csv", null, false);
+            long peakHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP)
+                    .mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+            log.warn("parallelism:{} rows:{} rows/sec:{} elapsed:{}ms peak heap:{}MB", parallelism, result.getRows(),
+                    Math.round(result.getRowsPerSecond()), result.getElapsedMillis(), peakHeap >> 20);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package me.elaamiri.MockitoTutorial.load;
+
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.MockitoTutorialApplication;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Blocking (Tomcat + JDBC) versus reactive profile (Netty + R2DBC): same seeded data, same keyset page reads,
+ * concurrency above the 200 Tomcat worker threads. Also reports the threads each server used and the time to
+ * stream the whole table.
+ * Run with: mvn -P loadtest test -Dtest=ReactiveLoadTest
+ */
+@Tag("load")
+@Slf4j
+class ReactiveLoadTest {
+    private static final int SEEDED_PERSONS = 10_000;
+    private static final int CONCURRENCY = 400;
+
+    @Test
+    void PersonApi_getAllPersons_compareBlockingAndReactive() throws Exception {
+        List<LoadResult> results = new ArrayList<>();
+        results.add(runAgainst("blocking", "--spring.profiles.active=default"));
+        results.add(runAgainst("reactive", "--spring.profiles.active=reactive"));
+
+        results.forEach(result -> log.warn("{}", result));
+        Assertions.assertThat(results).allSatisfy(result -> Assertions.assertThat(result.errors()).isZero());
+    }
+
+    private LoadResult runAgainst(String name, String profileArgument) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MockitoTutorialApplication.class)
+                .run(profileArgument, "--server.port=0", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                        "--spring.datasource.generate-unique-name=true")) {
+            context.getBean(PersonService.class).createPersons(IntStream.range(0, SEEDED_PERSONS)
+                    .mapToObj(i -> PersonDto.builder().firstName("first" + i).lastName("last" + i).build())
+                    .toList(), null);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String baseUrl = "http://localhost:" + port + "/api/persons/";
+
+            int threadsBefore = Thread.activeCount();
+            LoadResult result = LoadGenerator.run(name, CONCURRENCY, Duration.ofSeconds(5), Duration.ofSeconds(15), () -> {
+                long id = ThreadLocalRandom.current().nextLong(1, SEEDED_PERSONS);
+                HttpResponse<Void> response = client.send(
+                        HttpRequest.newBuilder(URI.create(baseUrl + "?limit=20&after=" + id)).GET().build(),
+                        HttpResponse.BodyHandlers.discarding());
+                return response.statusCode() == 200;
+            });
+            // The load generator threads are gone by now, what is left above the baseline belongs to the server
+            log.warn("{}: {} threads after the run ({} before)", name, Thread.activeCount(), threadsBefore);
+
+            long start = System.nanoTime();
+            HttpResponse<InputStream> stream = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "stream"))
+                    .header("Accept", "application/x-ndjson").GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+            long lines;
+            try (InputStream body = stream.body()) {
+                lines = new String(body.readAllBytes()).lines().count();
+            }
+            log.warn("{}: streamed {} persons in {} ms", name, lines, (System.nanoTime() - start) / 1_000_000);
+            Assertions.assertThat(lines).isEqualTo(SEEDED_PERSONS);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package me.elaamiri.MockitoTutorial.load;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.dtos.SearchField;
+import me.elaamiri.MockitoTutorial.dtos.SearchMode;
+import me.elaamiri.MockitoTutorial.repositories.PersonShard;
+import me.elaamiri.MockitoTutorial.services.ShardedPersonService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * How throughput scales with the shard count: the same persons, spread across 1, 2 then 4 embedded H2 databases
+ * ({@code load.shard-counts}), read by id, by keyset page and by CONTAINS search (a scan of every shard, in
+ * parallel). Report in target/sharding-report.json.
+ * The shards share the CPUs of this JVM: past the core count more shards cannot help.
+ * Run with: mvn -P loadtest test -Dtest=ShardingLoadTest
+ */
+@Tag("load")
+@Slf4j
+class ShardingLoadTest {
+    private static final int SEEDED_PERSONS = Integer.getInteger("load.persons", 100_000);
+    private static final int[] SHARD_COUNTS = Arrays.stream(System.getProperty("load.shard-counts", "1,2,4").split(","))
+            .map(String::trim).mapToInt(Integer::parseInt).toArray();
+    private static final int CONCURRENCY = 8;
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+    private static final Duration DURATION = Duration.ofSeconds(10);
+
+    @Test
+    void ShardedPersonService_throughputByShardCount() throws Exception {
+        List<LoadResult> results = new ArrayList<>();
+        for (int shardCount : SHARD_COUNTS) {
+            results.addAll(runWith(shardCount));
+        }
+
+        new LoadReport(Instant.now().toString(), SEEDED_PERSONS, WARMUP.toSeconds(), DURATION.toSeconds(), results)
+                .write(Path.of("target/sharding-report.json"));
+        for (LoadResult result : results) {
+            LoadResult single = results.stream()
+                    .filter(other -> other.name().equals(result.name().replaceAll("/\\d+-shards", "/" + SHARD_COUNTS[0] + "-shards")))
+                    .findFirst().orElse(result);
+            log.warn("{} x{}", result, String.format("%.2f", result.throughput() / single.throughput()));
+        }
+        Assertions.assertThat(results).allSatisfy(result -> Assertions.assertThat(result.errors()).isZero());
+    }
+
+    private List<LoadResult> runWith(int shardCount) throws Exception {
+        PersonProperties personProperties = new PersonProperties();
+        List<PersonShard> shards = IntStream.range(0, shardCount).mapToObj(i -> {
+            HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url("jdbc:h2:mem:scale-" + shardCount + "-" + i + ";DB_CLOSE_DELAY=-1").username("sa").build();
+            dataSource.setMaximumPoolSize(CONCURRENCY);
+            PersonShard shard = new PersonShard(i, dataSource);
+            shard.initSchema();
+            return shard;
+        }).toList();
+        ShardedPersonService service = new ShardedPersonService(shards, personProperties);
+        try {
+            List<Long> ids = IntStream.range(0, SEEDED_PERSONS).parallel()
+                    .mapToObj(i -> service.createPerson(PersonDto.builder().firstName("first" + i).lastName("last" + i).build()).getId())
+                    .toList();
+            Map<String, Callable<Boolean>> workloads = new LinkedHashMap<>();
+            workloads.put("lookup", () -> service.getPersonById(ids.get(ThreadLocalRandom.current().nextInt(ids.size()))).isPresent());
+            workloads.put("page", () -> service.getPersonsPage(ids.get(ThreadLocalRandom.current().nextInt(ids.size())), 20) != null);
+            workloads.put("search-contains", () -> !service.searchPersons("irst" + ThreadLocalRandom.current().nextInt(SEEDED_PERSONS),
+                    SearchField.FIRST_NAME, SearchMode.CONTAINS, 0, 20).isEmpty());
+            List<LoadResult> results = new ArrayList<>();
+            for (Map.Entry<String, Callable<Boolean>> workload : workloads.entrySet()) {
+                results.add(LoadGenerator.run(workload.getKey() + "/" + shardCount + "-shards", CONCURRENCY, WARMUP, DURATION,
+                        workload.getValue()));
+            }
+            return results;
+        } finally {
+            service.destroy();
+        }
+    }
+}
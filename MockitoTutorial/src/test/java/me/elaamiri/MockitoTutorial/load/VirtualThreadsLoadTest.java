@@ -0,0 +1,68 @@
+package me.elaamiri.MockitoTutorial.load;
+
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.MockitoTutorialApplication;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Before/after comparison of the default Tomcat thread pool and the virtual-threads profile:
+ * same seeded data, same read workload, concurrency above the 200 platform worker threads.
+ * Run with: mvn -P loadtest test -Dtest=VirtualThreadsLoadTest (on JDK 21)
+ */
+@Tag("load")
+@EnabledForJreRange(min = JRE.JAVA_21)
+@Slf4j
+class VirtualThreadsLoadTest {
+    private static final int SEEDED_PERSONS = 10_000;
+    private static final int CONCURRENCY = 400;
+
+    @Test
+    void PersonController_getAllPersons_compareThreadModels() throws Exception {
+        List<LoadResult> results = new ArrayList<>();
+        results.add(runAgainst("platform-threads", "--spring.profiles.active=default"));
+        results.add(runAgainst("virtual-threads", "--spring.profiles.active=virtual-threads"));
+
+        results.forEach(result -> log.warn("{}", result));
+        Assertions.assertThat(results).allSatisfy(result -> Assertions.assertThat(result.errors()).isZero());
+    }
+
+    private LoadResult runAgainst(String name, String profileArgument) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MockitoTutorialApplication.class)
+                .run(profileArgument, "--server.port=0", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                        "--spring.datasource.generate-unique-name=true")) {
+            context.getBean(PersonService.class).createPersons(IntStream.range(0, SEEDED_PERSONS)
+                    .mapToObj(i -> PersonDto.builder().firstName("first" + i).lastName("last" + i).build())
+                    .toList(), null);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String baseUrl = "http://localhost:" + port + "/api/persons/";
+            // Keyset pages are not cached: every request goes to the database and blocks on JDBC
+            return LoadGenerator.run(name, CONCURRENCY, Duration.ofSeconds(5), Duration.ofSeconds(15), () -> {
+                long id = ThreadLocalRandom.current().nextLong(1, SEEDED_PERSONS);
+                HttpResponse<Void> response = client.send(
+                        HttpRequest.newBuilder(URI.create(baseUrl + "?limit=20&after=" + id)).GET().build(),
+                        HttpResponse.BodyHandlers.discarding());
+                return response.statusCode() == 200;
+            });
+        }
+    }
+}
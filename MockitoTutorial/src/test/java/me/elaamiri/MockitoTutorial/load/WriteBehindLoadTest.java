@@ -0,0 +1,70 @@
+package me.elaamiri.MockitoTutorial.load;
+
+import lombok.extern.slf4j.Slf4j;
+import me.elaamiri.MockitoTutorial.MockitoTutorialApplication;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import me.elaamiri.MockitoTutorial.services.PersonWriteBehindQueue;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * POST api/persons/ with a commit per request versus the write-behind queue, same client load.
+ * Reports request throughput/latency and the persisted rows per second (queue drained included).
+ * Run with: mvn -P loadtest test -Dtest=WriteBehindLoadTest
+ */
+@Tag("load")
+@Slf4j
+class WriteBehindLoadTest {
+    private static final int CONCURRENCY = 64;
+
+    @Test
+    void PersonController_createPerson_compareWriteBehind() throws Exception {
+        LoadResult synchronous = runAgainst("synchronous", false);
+        LoadResult writeBehind = runAgainst("write-behind", true);
+
+        log.warn("{}", synchronous);
+        log.warn("{}", writeBehind);
+        Assertions.assertThat(synchronous.errors()).isZero();
+        Assertions.assertThat(writeBehind.errors()).isZero();
+    }
+
+    private LoadResult runAgainst(String name, boolean writeBehind) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MockitoTutorialApplication.class)
+                .run("--persons.write-behind.enabled=" + writeBehind, "--server.port=0", "--logging.level.root=WARN",
+                        "--spring.main.banner-mode=off", "--spring.datasource.generate-unique-name=true")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://localhost:" + port + "/api/persons/");
+            AtomicLong sequence = new AtomicLong();
+            long start = System.nanoTime();
+            LoadResult result = LoadGenerator.run(name, CONCURRENCY, Duration.ofSeconds(3), Duration.ofSeconds(10), () -> {
+                long i = sequence.incrementAndGet();
+                HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri)
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(
+                                        "{\"firstName\":\"first" + i + "\",\"lastName\":\"last" + i + "\"}"))
+                                .build(),
+                        HttpResponse.BodyHandlers.discarding());
+                return response.statusCode() == (writeBehind ? 202 : 201);
+            });
+            // Written out before the rows are counted
+            context.getBean(PersonWriteBehindQueue.class).stop();
+            long persisted = context.getBean(PersonRepository.class).count();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            log.warn("{}: {} rows persisted, {} rows/sec", name, persisted, Math.round(persisted / seconds));
+            Assertions.assertThat(persisted).isEqualTo(sequence.get() - result.errors());
+            return result;
+        }
+    }
+}
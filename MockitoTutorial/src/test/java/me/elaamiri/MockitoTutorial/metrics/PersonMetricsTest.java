@@ -0,0 +1,72 @@
+package me.elaamiri.MockitoTutorial.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PersonMetricsTest {
+    @Autowired
+    private PersonService personService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MockMvc mockMvc;
+
+    private Timer timer(String operation, String outcome){
+        return meterRegistry.find(PersonServiceMetrics.TIMER_NAME)
+                .tag("operation", operation).tag("outcome", outcome).timer();
+    }
+
+    @Test
+    void PersonServiceMetrics_time_recordOutcomePerOperation(){
+        // Act
+        Person created = personService.createPerson(PersonDto.builder().firstName("salima").lastName("Gau").build());
+        personService.updatePerson(PersonDto.builder().id(-1L).firstName("ghost").build());
+        personService.deletePersonById(-1L);
+        personService.deletePersonById(created.getId());
+
+        // Assert
+        Assertions.assertThat(timer("createPerson", "success").count()).isEqualTo(1);
+        Assertions.assertThat(timer("updatePerson", "not_found").count()).isEqualTo(1);
+        Assertions.assertThat(timer("deletePersonById", "not_found").count()).isEqualTo(1);
+        Assertions.assertThat(timer("deletePersonById", "success").count()).isEqualTo(1);
+        Assertions.assertThat(timer("createPerson", "success").takeSnapshot().percentileValues()).hasSize(3);
+    }
+
+    @Test
+    void SqlStatementsPerRequestFilter_record_statementsOfEachRequest() throws Exception{
+        DistributionSummary statements = meterRegistry.get(SqlStatementsPerRequestFilter.SUMMARY_NAME).summary();
+        long before = statements.count();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/").param("limit", "10"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        Assertions.assertThat(statements.count()).isEqualTo(before + 1);
+        Assertions.assertThat(statements.max()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void Actuator_metrics_exposeServiceAndPoolMetrics() throws Exception{
+        personService.getPersonById(-42L);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/" + PersonServiceMetrics.TIMER_NAME))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/hikaricp.connections.acquire"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/cache.gets").param("tag", "cache:persons"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+}
@@ -0,0 +1,48 @@
+package me.elaamiri.MockitoTutorial.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest(properties = {"persons.startup.report=target/startup-report-test.json",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"})
+@ActiveProfiles("fast-startup")
+@AutoConfigureMockMvc
+class StartupTimingsTest {
+    @Autowired
+    private StartupTimings startupTimings;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void StartupTimings_firstRequestServed_reportAllPhases() throws Exception {
+        // Lazy initialization: the persons API is only built for its first request
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/").param("limit", "10"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        long firstRequest = startupTimings.report().phases().get("first-request");
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/").param("limit", "10"));
+
+        StartupTimings.Report report = startupTimings.report();
+        Assertions.assertThat(report.lazyInitialization()).isTrue();
+        Assertions.assertThat(report.phases()).containsKeys("jvm", "context-refresh", "hibernate-bootstrap", "ready")
+                .containsEntry("first-request", firstRequest);
+        Assertions.assertThat(report.phases().get("first-request")).isGreaterThanOrEqualTo(report.phases().get("ready"));
+        Assertions.assertThat(meterRegistry.get(StartupTimings.GAUGE_NAME).tag("phase", "first-request").timeGauge()
+                .value(TimeUnit.MILLISECONDS)).isEqualTo(firstRequest);
+        Assertions.assertThat(new ObjectMapper().readValue(Path.of("target/startup-report-test.json").toFile(), StartupTimings.Report.class))
+                .isEqualTo(report);
+    }
+}
@@ -0,0 +1,74 @@
+package me.elaamiri.MockitoTutorial.repositories;
+
+import me.elaamiri.MockitoTutorial.dtos.PersonSummary;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// JUnit 5 (picked up by surefire), same conventions as PersonRepositoryTest
+@DataJpaTest
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class PersonRepositoryPaginationTest {
+    @Autowired
+    private PersonRepository personRepository;
+
+    private List<Person> savePersons(int count){
+        return personRepository.saveAll(IntStream.range(0, count)
+                .mapToObj(i -> Person.builder().firstName("person" + i + "fn").lastName("person" + i + "ln").build())
+                .toList());
+    }
+
+    @Test
+    void PersonRepository_findByIdGreaterThan_returnNextPageOrderedById(){
+        // Arrange
+        List<Person> saved = savePersons(5);
+        long after = saved.get(1).getId();
+
+        // Act
+        List<Person> page = personRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(2));
+
+        // Assert
+        Assertions.assertThat(page).extracting(Person::getId)
+                .containsExactly(saved.get(2).getId(), saved.get(3).getId());
+    }
+
+    @Test
+    void PersonRepository_findByIdGreaterThan_returnEmptyAfterLastId(){
+        List<Person> saved = savePersons(3);
+
+        List<Person> page = personRepository.findByIdGreaterThanOrderByIdAsc(saved.get(2).getId(), Limit.of(10));
+
+        Assertions.assertThat(page).isEmpty();
+    }
+
+    @Test
+    void PersonRepository_streamAllOrderedById_returnEveryPerson(){
+        List<Person> saved = savePersons(4);
+
+        // A stream query needs a transaction: @DataJpaTest runs each test in one
+        try (Stream<Person> persons = personRepository.streamAllOrderedById()) {
+            Assertions.assertThat(persons.map(Person::getId).toList())
+                    .containsExactlyElementsOf(saved.stream().map(Person::getId).toList());
+        }
+    }
+
+    @Test
+    void PersonRepository_findSummariesByIdGreaterThan_returnNamesOnlyOrderedById(){
+        List<Person> saved = savePersons(4);
+
+        List<PersonSummary> page = personRepository.findSummariesByIdGreaterThan(saved.get(0).getId(), Limit.of(2));
+
+        Assertions.assertThat(page).containsExactly(
+                new PersonSummary(saved.get(1).getId(), "person1fn", "person1ln", saved.get(1).getVersion()),
+                new PersonSummary(saved.get(2).getId(), "person2fn", "person2ln", saved.get(2).getVersion()));
+    }
+}
@@ -0,0 +1,129 @@
+package me.elaamiri.MockitoTutorial.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import me.elaamiri.MockitoTutorial.services.PersonService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+
+/**
+ * Two embedded H2 databases stand in for the primary and its replica. There is no replication between them:
+ * {@link #replicate()} copies the primary to the replica, what is written after is not on the replica yet.
+ */
+@SpringBootTest(properties = {
+        "persons.routing.enabled=true",
+        "spring.datasource.url=" + ReadWriteRoutingTest.PRIMARY_URL,
+        "spring.datasource.username=sa",
+        "persons.routing.replicas[0].url=" + ReadWriteRoutingTest.REPLICA_URL,
+        "persons.routing.replicas[0].username=sa",
+        "persons.routing.max-replica-lag=1m",
+        // Every read goes to the database
+        "persons.cache.enabled=false",
+        "persons.query-cache.enabled=false"
+})
+@AutoConfigureMockMvc
+class ReadWriteRoutingTest {
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+    private static final String API_BASE_URL = "/api/persons";
+
+    @Autowired
+    private PersonService personService;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private HikariDataSource primaryDataSource;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void setup(){
+        replicate();
+    }
+
+    @AfterEach
+    void cleanup(){
+        personRepository.deleteAll();
+    }
+
+    private void replicate(){
+        List<String> script = new JdbcTemplate(primaryDataSource).queryForList("SCRIPT NOPASSWORDS NOSETTINGS", String.class);
+        replica.execute("DROP ALL OBJECTS");
+        script.stream().filter(statement -> !statement.startsWith("CREATE USER")).forEach(replica::execute);
+    }
+
+    private double readsFromPrimary(String reason){
+        return meterRegistry.get("persons.routing.reads").tag("target", "primary").tag("reason", reason)
+                .functionCounter().count();
+    }
+
+    @Test
+    void PersonService_readOnlyReads_servedByReplica(){
+        Person salima = personService.createPerson(PersonDto.builder().firstName("Salima").lastName("Gaudin").build());
+
+        // Written on the primary only
+        Assertions.assertThat(personRepository.existsById(salima.getId())).isFalse();
+        Assertions.assertThat(personService.getPersonById(salima.getId())).isEmpty();
+        Assertions.assertThat(personService.getAllPersons()).isEmpty();
+
+        replicate();
+        Assertions.assertThat(personService.getPersonById(salima.getId())).get()
+                .extracting(Person::getFirstName).isEqualTo("Salima");
+        Assertions.assertThat(personService.getAllPersons()).hasSize(1);
+    }
+
+    @Test
+    void PersonService_updatePerson_readsAndWritesThePrimary(){
+        Person salima = personService.createPerson(PersonDto.builder().firstName("Salima").lastName("Gaudin").build());
+
+        // Not on the replica, the update still finds it
+        Person updated = personService.updatePerson(PersonDto.builder().id(salima.getId()).firstName("Nadia").lastName("Gaudin").build());
+
+        Assertions.assertThat(updated.getFirstName()).isEqualTo("Nadia");
+        replicate();
+        Assertions.assertThat(personService.getPersonById(salima.getId())).get()
+                .extracting(Person::getFirstName).isEqualTo("Nadia");
+    }
+
+    @Test
+    void PersonController_getPerson_sessionReadsItsOwnWrites() throws Exception {
+        double pinned = readsFromPrimary("read-your-writes");
+        String body = mockMvc.perform(MockMvcRequestBuilders.post(API_BASE_URL + "/")
+                        .header("X-Session-Id", "alice")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Salima\",\"lastName\":\"Gaudin\"}"))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String id = body.replaceAll(".*\"id\":(\\d+).*", "$1");
+
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/" + id).header("X-Session-Id", "alice"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.firstName").value("Salima"));
+        // Another session (or none) reads the replica, which has not caught up
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/" + id).header("X-Session-Id", "bob"))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        mockMvc.perform(MockMvcRequestBuilders.get(API_BASE_URL + "/" + id))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        Assertions.assertThat(readsFromPrimary("read-your-writes")).isEqualTo(pinned + 1);
+    }
+}
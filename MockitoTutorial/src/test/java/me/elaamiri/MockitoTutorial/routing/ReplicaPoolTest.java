@@ -0,0 +1,126 @@
+package me.elaamiri.MockitoTutorial.routing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class ReplicaPoolTest {
+    private final Connection primaryConnection = Mockito.mock(Connection.class);
+    private final Connection replica0Connection = Mockito.mock(Connection.class);
+    private final Connection replica1Connection = Mockito.mock(Connection.class);
+    private DataSource primary;
+    private DataSource replica0;
+    private DataSource replica1;
+    private ReadYourWrites readYourWrites;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        primary = Mockito.mock(DataSource.class);
+        replica0 = Mockito.mock(DataSource.class);
+        replica1 = Mockito.mock(DataSource.class);
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        Mockito.when(replica0.getConnection()).thenReturn(replica0Connection);
+        Mockito.when(replica1.getConnection()).thenReturn(replica1Connection);
+        readYourWrites = new ReadYourWrites(true, Duration.ofMinutes(1));
+    }
+
+    private ReplicaPool replicaPool(Duration retryInterval){
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica0);
+        replicas.put("replica-1", replica1);
+        return new ReplicaPool(replicas, primary, readYourWrites, retryInterval);
+    }
+
+    @Test
+    void ReplicaPool_getConnection_replicasInTurn() throws SQLException {
+        ReplicaPool replicaPool = replicaPool(Duration.ofMinutes(1));
+
+        Assertions.assertThat(replicaPool.getConnection()).isSameAs(replica0Connection);
+        Assertions.assertThat(replicaPool.getConnection()).isSameAs(replica1Connection);
+        Assertions.assertThat(replicaPool.getConnection()).isSameAs(replica0Connection);
+        Mockito.verify(primary, Mockito.never()).getConnection();
+    }
+
+    @Test
+    void ReplicaPool_getConnection_failingReplicaLeftOutUntilRetryInterval() throws SQLException {
+        Mockito.when(replica1.getConnection()).thenThrow(new SQLTransientConnectionException("timeout"));
+        ReplicaPool replicaPool = replicaPool(Duration.ofMinutes(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        replicaPool.bindTo(registry);
+
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertThat(replicaPool.getConnection()).isSameAs(replica0Connection);
+        }
+
+        // Asked once, then left out
+        Mockito.verify(replica1, Mockito.times(1)).getConnection();
+        Assertions.assertThat(replicaPool.getAvailableReplicas()).containsExactly("replica-0");
+        Assertions.assertThat(registry.get("persons.routing.replica.failures").tag("replica", "replica-1")
+                .functionCounter().count()).isEqualTo(1);
+        Assertions.assertThat(registry.get("persons.routing.reads").tag("target", "replica-0")
+                .functionCounter().count()).isEqualTo(4);
+    }
+
+    @Test
+    void ReplicaPool_getConnection_failedReplicaTriedAgainAfterRetryInterval() throws SQLException {
+        Mockito.when(replica1.getConnection())
+                .thenThrow(new SQLTransientConnectionException("timeout"))
+                .thenReturn(replica1Connection);
+        ReplicaPool replicaPool = replicaPool(Duration.ZERO);
+
+        replicaPool.getConnection();
+        // replica-1 fails, replica-0 answers instead
+        Assertions.assertThat(replicaPool.getConnection()).isSameAs(replica0Connection);
+        replicaPool.getConnection();
+
+        Assertions.assertThat(replicaPool.getConnection()).isSameAs(replica1Connection);
+        Assertions.assertThat(replicaPool.getAvailableReplicas()).containsExactly("replica-0", "replica-1");
+    }
+
+    @Test
+    void ReplicaPool_getConnection_primaryWhenNoReplicaAnswers() throws SQLException {
+        Mockito.when(replica0.getConnection()).thenThrow(new SQLTransientConnectionException("timeout"));
+        Mockito.when(replica1.getConnection()).thenThrow(new IllegalStateException("pool closed"));
+        ReplicaPool replicaPool = replicaPool(Duration.ofMinutes(1));
+
+        Assertions.assertThat(replicaPool.getConnection()).isSameAs(primaryConnection);
+        Assertions.assertThat(replicaPool.getConnection()).isSameAs(primaryConnection);
+        Assertions.assertThat(replicaPool.getAvailableReplicas()).isEmpty();
+    }
+
+    @Test
+    void ReplicaPool_getConnection_primaryForTheSessionThatJustWrote() throws SQLException {
+        ReplicaPool replicaPool = replicaPool(Duration.ofMinutes(1));
+
+        try (ReadYourWrites.Scope ignored = readYourWrites.open("alice")) {
+            readYourWrites.written();
+            Assertions.assertThat(replicaPool.getConnection()).isSameAs(primaryConnection);
+        }
+        try (ReadYourWrites.Scope ignored = readYourWrites.open("bob")) {
+            Assertions.assertThat(replicaPool.getConnection()).isSameAs(replica0Connection);
+        }
+        // No session: never pinned
+        Assertions.assertThat(replicaPool.getConnection()).isSameAs(replica1Connection);
+    }
+
+    @Test
+    void ReplicaPool_getConnection_readYourWritesDisabled() throws SQLException {
+        readYourWrites = new ReadYourWrites(false, Duration.ofMinutes(1));
+        ReplicaPool replicaPool = replicaPool(Duration.ofMinutes(1));
+
+        try (ReadYourWrites.Scope ignored = readYourWrites.open("alice")) {
+            readYourWrites.written();
+            Assertions.assertThat(replicaPool.getConnection()).isSameAs(replica0Connection);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.CacheStatsDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+class PersonCacheTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    private final AtomicInteger loads = new AtomicInteger();
+    private PersonProperties personProperties;
+
+    private final Person person1 = Person.builder().id(1L).firstName("salima").lastName("Gau").build();
+
+    private final LongFunction<Optional<Person>> loader = id -> {
+        loads.incrementAndGet();
+        return id == 1L ? Optional.of(person1) : Optional.empty();
+    };
+
+    @BeforeEach
+    void setup(){
+        personProperties = new PersonProperties();
+        personProperties.getCache().setTtl(Duration.ofMinutes(10));
+        personProperties.getCache().setNegativeTtl(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void PersonCache_get_loadOnceThenHit(){
+        PersonCache personCache = new PersonCache(personProperties, ticker);
+
+        personCache.get(1L, loader);
+        Optional<Person> cached = personCache.get(1L, loader);
+
+        Assertions.assertThat(cached).contains(person1);
+        Assertions.assertThat(loads).hasValue(1);
+        CacheStatsDto stats = personCache.stats();
+        Assertions.assertThat(stats.getHitCount()).isEqualTo(1);
+        Assertions.assertThat(stats.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void PersonCache_get_cacheMissingIdUntilNegativeTtl(){
+        PersonCache personCache = new PersonCache(personProperties, ticker);
+
+        Assertions.assertThat(personCache.get(2L, loader)).isEmpty();
+        Assertions.assertThat(personCache.get(2L, loader)).isEmpty();
+        Assertions.assertThat(loads).hasValue(1);
+        Assertions.assertThat(personCache.stats().getNegativeHitCount()).isEqualTo(1);
+
+        // Act: the negative entry expires long before a positive one would
+        nanos.addAndGet(Duration.ofSeconds(31).toNanos());
+        personCache.get(2L, loader);
+        personCache.get(1L, loader);
+        nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+        personCache.get(1L, loader);
+
+        Assertions.assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void PersonCache_invalidate_reloadOnNextGet(){
+        PersonCache personCache = new PersonCache(personProperties, ticker);
+        personCache.get(1L, loader);
+
+        personCache.invalidate(1L);
+        personCache.get(1L, loader);
+
+        Assertions.assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void PersonCache_get_evictBeyondMaximumSize(){
+        personProperties.getCache().setMaximumSize(10);
+        PersonCache personCache = new PersonCache(personProperties, ticker);
+
+        for (long id = 100; id < 200; id++) {
+            personCache.get(id, loader);
+        }
+        personCache.cleanUp();
+
+        Assertions.assertThat(personCache.stats().getEvictionCount()).isPositive();
+    }
+
+    @Test
+    void PersonCache_get_bypassWhenDisabled(){
+        personProperties.getCache().setEnabled(false);
+        PersonCache personCache = new PersonCache(personProperties, ticker);
+
+        personCache.get(1L, loader);
+        personCache.get(1L, loader);
+
+        Assertions.assertThat(loads).hasValue(2);
+    }
+
+    // Runs the lookups on threads of their own while the loader is blocked, then lets it return
+    private List<Optional<Person>> concurrently(int lookups, PersonCache personCache, LongFunction<Optional<Person>> loader,
+                                                CountDownLatch release) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(lookups);
+        try {
+            List<Future<Optional<Person>>> futures = new ArrayList<>();
+            for (int i = 0; i < lookups; i++) {
+                futures.add(executor.submit(() -> personCache.get(1L, loader)));
+            }
+            // Until every lookup is either loading or waiting for the load
+            while (loads.get() + personCache.stats().getSharedLoadCount() < lookups
+                    && futures.stream().noneMatch(Future::isDone)) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            List<Optional<Person>> results = new ArrayList<>();
+            for (Future<Optional<Person>> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void PersonCache_get_concurrentMissesShareOneLoad() throws Exception{
+        PersonCache personCache = new PersonCache(personProperties, ticker);
+        CountDownLatch release = new CountDownLatch(1);
+        LongFunction<Optional<Person>> slowLoader = id -> {
+            loads.incrementAndGet();
+            await(release);
+            return Optional.of(person1);
+        };
+
+        List<Optional<Person>> results = concurrently(8, personCache, slowLoader, release);
+
+        Assertions.assertThat(results).hasSize(8).containsOnly(Optional.of(person1));
+        Assertions.assertThat(loads).hasValue(1);
+        Assertions.assertThat(personCache.stats().getSharedLoadCount()).isEqualTo(7);
+        Assertions.assertThat(personCache.get(1L, loader)).contains(person1);
+        Assertions.assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void PersonCache_get_concurrentMissesShareOneLoadWhenDisabled() throws Exception{
+        personProperties.getCache().setEnabled(false);
+        PersonCache personCache = new PersonCache(personProperties, ticker);
+        CountDownLatch release = new CountDownLatch(1);
+        LongFunction<Optional<Person>> slowLoader = id -> {
+            loads.incrementAndGet();
+            await(release);
+            return Optional.of(person1);
+        };
+
+        concurrently(4, personCache, slowLoader, release);
+
+        Assertions.assertThat(loads).hasValue(1);
+        // Nothing kept once the load is done
+        personCache.get(1L, loader);
+        Assertions.assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void PersonCache_invalidate_loadInFlightNotCachedNorJoined() throws Exception{
+        PersonCache personCache = new PersonCache(personProperties, ticker);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Person stale = Person.builder().id(1L).firstName("stale").build();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<Person>> before = executor.submit(() -> personCache.get(1L, id -> {
+                loading.countDown();
+                await(release);
+                return Optional.of(stale);
+            }));
+            loading.await();
+
+            // A write: the lookups that follow read it, the stale load in flight is not cached
+            personCache.invalidate(1L);
+            Assertions.assertThat(personCache.get(1L, loader)).contains(person1);
+            release.countDown();
+
+            Assertions.assertThat(before.get(10, TimeUnit.SECONDS)).contains(stale);
+            Assertions.assertThat(personCache.get(1L, loader)).contains(person1);
+            Assertions.assertThat(loads).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void PersonCache_invalidate_bulkLoadInFlightNotCached() throws Exception{
+        PersonCache personCache = new PersonCache(personProperties, ticker);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Person stale = Person.builder().id(1L).firstName("stale").build();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Map<Long, Optional<Person>>> before = executor.submit(() -> personCache.getAll(List.of(1L, 2L), ids -> {
+                loading.countDown();
+                await(release);
+                return Map.of(1L, Optional.of(stale), 2L, Optional.empty());
+            }));
+            loading.await();
+
+            personCache.invalidate(1L);
+            release.countDown();
+
+            Assertions.assertThat(before.get(10, TimeUnit.SECONDS)).containsEntry(1L, Optional.of(stale));
+            // Only the id written during the load is read again
+            Assertions.assertThat(personCache.getAll(List.of(1L, 2L), ids -> {
+                Assertions.assertThat(ids).containsExactly(1L);
+                return Map.of(1L, loader.apply(1L));
+            })).containsEntry(1L, Optional.of(person1)).containsEntry(2L, Optional.empty());
+            Assertions.assertThat(loads).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void PersonCache_get_failedLoadNotCached(){
+        PersonCache personCache = new PersonCache(personProperties, ticker);
+
+        Assertions.assertThatThrownBy(() -> personCache.get(1L, id -> {
+            throw new IllegalStateException("database down");
+        })).hasMessage("database down");
+
+        Assertions.assertThat(personCache.get(1L, loader)).contains(person1);
+        Assertions.assertThat(loads).hasValue(1);
+    }
+
+    private static void await(CountDownLatch latch){
+        try {
+            latch.await();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        }
+    }
+}
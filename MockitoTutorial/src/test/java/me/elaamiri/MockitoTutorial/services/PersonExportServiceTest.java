@@ -0,0 +1,86 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import me.elaamiri.MockitoTutorial.dtos.ExportResultDto;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+@SpringBootTest(properties = {"persons.export.directory=target/test-exports", "persons.export.range-size=7"})
+class PersonExportServiceTest {
+    @Autowired
+    private PersonExportService personExportService;
+    @Autowired
+    private PersonService personService;
+    @Autowired
+    private PersonRepository personRepository;
+
+    @BeforeEach
+    void setup(){
+        List<PersonDto> persons = new ArrayList<>(IntStream.range(0, 29)
+                .mapToObj(i -> PersonDto.builder().firstName("first" + i).lastName("last" + i).build())
+                .toList());
+        persons.add(PersonDto.builder().firstName("Karim, \"KB\"").lastName("Benali")
+                .birthDate(java.sql.Date.valueOf("1990-05-17")).build());
+        personService.createPersons(persons, null);
+    }
+
+    @AfterEach
+    void cleanup(){
+        personRepository.deleteAllInBatch();
+    }
+
+    private static List<String> lines(Path directory) throws IOException{
+        List<String> lines = new ArrayList<>();
+        try (Stream<Path> parts = Files.list(directory).sorted()) {
+            for (Path part : parts.toList()) {
+                try (InputStream input = new GZIPInputStream(Files.newInputStream(part))) {
+                    lines.addAll(new String(input.readAllBytes(), StandardCharsets.UTF_8).lines().toList());
+                }
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    void PersonExportService_exportPersons_writeEveryPersonInGzippedParts() throws Exception{
+        ExportResultDto result = personExportService.exportPersons(null);
+
+        Assertions.assertThat(result.getRows()).isEqualTo(30);
+        Assertions.assertThat(result.getRanges()).isGreaterThanOrEqualTo(5);
+        Assertions.assertThat(result.getRowsPerSecond()).isPositive();
+        List<String> lines = lines(Path.of(result.getDirectory()));
+        Assertions.assertThat(lines).filteredOn(PersonExportService.HEADER::equals).hasSize(result.getFiles());
+        Assertions.assertThat(lines).filteredOn(line -> !line.equals(PersonExportService.HEADER)).hasSize(30);
+        Assertions.assertThat(lines).anyMatch(line -> line.contains(",\"Karim, \"\"KB\"\"\",Benali,1990-05-17,"));
+    }
+
+    @Test
+    void PersonExportService_exportPersons_onlyPersonsModifiedSince() throws Exception{
+        ExportResultDto result = personExportService.exportPersons(Date.from(Instant.now().plus(Duration.ofDays(2))));
+
+        Assertions.assertThat(result.getRows()).isZero();
+        Assertions.assertThat(result.getFiles()).isZero();
+        Assertions.assertThat(lines(Path.of(result.getDirectory()))).isEmpty();
+        Assertions.assertThat(personExportService.exportPersons(Date.from(Instant.now().minus(Duration.ofDays(2)))).getRows())
+                .isEqualTo(30);
+    }
+}
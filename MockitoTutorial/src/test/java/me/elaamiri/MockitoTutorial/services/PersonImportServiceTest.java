@@ -0,0 +1,222 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import me.elaamiri.MockitoTutorial.dtos.ImportErrorDto;
+import me.elaamiri.MockitoTutorial.dtos.ImportFormat;
+import me.elaamiri.MockitoTutorial.dtos.ImportResultDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@SpringBootTest(properties = {"persons.bulk-import.directory=target/test-imports", "persons.bulk-import.batch-size=7",
+        "persons.bulk-import.parallelism=3"})
+class PersonImportServiceTest {
+    private static final Path DIRECTORY = Path.of("target/test-imports");
+
+    @Autowired
+    private PersonImportService personImportService;
+    @Autowired
+    private PersonRepository personRepository;
+    @SpyBean
+    private PersonService personService;
+
+    @BeforeEach
+    void setup() throws Exception{
+        FileSystemUtils.deleteRecursively(DIRECTORY);
+        Files.createDirectories(DIRECTORY);
+    }
+
+    @AfterEach
+    void cleanup(){
+        personRepository.deleteAllInBatch();
+    }
+
+    private static String csvRows(int from, int to){
+        return IntStream.range(from, to).mapToObj(i -> "first" + i + ",last" + i + ",1990-01-01\n").collect(Collectors.joining());
+    }
+
+    @Test
+    void PersonImportService_importPersons_csvRowsImportedAndBadRowsReported() throws Exception{
+        Files.writeString(DIRECTORY.resolve("persons.csv"), "\uFEFFid,firstName,lastName,birthDate\r\n"
+                + "12,\"Karim, \"\"KB\"\"\",Benali,1990-05-01T00:00:00Z\r\n"
+                + "13,\"Multi\nline\",Idrissi,\r\n"
+                + "\r\n"
+                + "14,Nadia,,1990-05-01\r\n"
+                + "15,Omar,Rabat,yesterday\r\n"
+                + "16,Omar,Rabat\r\n"
+                + "17,Salima,Gaudin,2990-01-01\r\n"
+                + IntStream.range(0, 20).mapToObj(i -> "0,first" + i + ",last" + i + ",\n").collect(Collectors.joining()),
+                StandardCharsets.UTF_8);
+
+        ImportResultDto result = personImportService.importPersons("persons.csv", null, true);
+
+        Assertions.assertThat(result.getFormat()).isEqualTo(ImportFormat.CSV);
+        Assertions.assertThat(result.getRows()).isEqualTo(26);
+        Assertions.assertThat(result.getImported()).isEqualTo(22);
+        Assertions.assertThat(result.getRejected()).isEqualTo(4);
+        Assertions.assertThat(result.getRowsPerSecond()).isPositive();
+        Assertions.assertThat(result.getErrors()).extracting(ImportErrorDto::getRow).containsExactly(3L, 4L, 5L, 6L);
+        Assertions.assertThat(result.getErrors()).extracting(ImportErrorDto::getError).containsExactly(
+                "lastName is missing", "birthDate is not an ISO date: yesterday", "Expected 4 fields, found 3",
+                "birthDate is in the future: 2990-01-01");
+        Assertions.assertThat(Files.readAllLines(Path.of(result.getErrorsFile()))).hasSize(5)
+                .contains("row,error", "4,birthDate is not an ISO date: yesterday");
+        Assertions.assertThat(personRepository.count()).isEqualTo(22);
+        Assertions.assertThat(personRepository.findAll()).extracting(Person::getFirstName)
+                .contains("Karim, \"KB\"", "Multi\nline", "first19")
+                .doesNotContain("Nadia", "Omar", "Salima");
+        Assertions.assertThat(personRepository.findAll()).allSatisfy(person ->
+                Assertions.assertThat(person.getCreationDate()).isNotNull());
+    }
+
+    @Test
+    void PersonImportService_importPersons_ndjsonFieldsReadWithoutTheOthers() throws Exception{
+        Files.writeString(DIRECTORY.resolve("persons.ndjson"), """
+                {"id":99,"firstName":"Salima","lastName":"Gaudin","birthDate":"1990-05-01","tags":["a",{"b":1}]}
+                {"firstName":"Nadia","lastName":"Idrissi","birthDate":null}
+                {"firstName":"Omar","lastName":
+                {"firstName":"Amine","lastName":42}
+                ["Mina"]
+                """, StandardCharsets.UTF_8);
+
+        ImportResultDto result = personImportService.importPersons("persons.ndjson", null, true);
+
+        Assertions.assertThat(result.getImported()).isEqualTo(2);
+        Assertions.assertThat(result.getErrors()).extracting(ImportErrorDto::getRow).containsExactly(3L, 4L, 5L);
+        Assertions.assertThat(result.getErrors().get(1).getError()).isEqualTo("lastName is not a string");
+        Assertions.assertThat(personRepository.findAll()).extracting(Person::getFirstName).containsExactlyInAnyOrder("Salima", "Nadia");
+    }
+
+    @Test
+    void PersonImportService_importPersons_resumeAfterTheCheckpoint() throws Exception{
+        Path file = DIRECTORY.resolve("persons.csv");
+        Files.writeString(file, "firstName,lastName,birthDate\n" + csvRows(0, 30), StandardCharsets.UTF_8);
+        personImportService.importPersons("persons.csv", null, true);
+
+        // Done: nothing left to import, then only the rows appended since
+        Assertions.assertThat(personImportService.importPersons("persons.csv", null, true).getRows()).isZero();
+        Files.writeString(file, csvRows(30, 45), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        ImportResultDto resumed = personImportService.importPersons("persons.csv", null, true);
+
+        Assertions.assertThat(resumed.getResumedAfterRow()).isEqualTo(30);
+        Assertions.assertThat(resumed.getImported()).isEqualTo(15);
+        Assertions.assertThat(personRepository.count()).isEqualTo(45);
+        Assertions.assertThat(Files.readString(DIRECTORY.resolve("persons.csv.checkpoint")))
+                .contains("offset=" + Files.size(file), "row=45");
+
+        // Replaced by a shorter file: the checkpoint does not apply anymore
+        Files.writeString(file, "firstName,lastName\n" + "Salima,Gaudin\n", StandardCharsets.UTF_8);
+        Assertions.assertThat(personImportService.importPersons("persons.csv", null, true).getImported()).isEqualTo(1);
+        Assertions.assertThat(personImportService.importPersons("persons.csv", null, false).getImported()).isEqualTo(1);
+        Assertions.assertThat(personRepository.count()).isEqualTo(47);
+    }
+
+    @Test
+    void PersonImportService_importPersons_resumeSkipsBatchesCommittedAfterAFailedOne() throws Exception{
+        Path file = DIRECTORY.resolve("persons.csv");
+        Files.writeString(file, "firstName,lastName,birthDate\n" + csvRows(0, 30), StandardCharsets.UTF_8);
+        // The batch of rows 8-14 fails once the batch of rows 15-21 is committed
+        CountDownLatch nextCommitted = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            List<Person> persons = invocation.getArgument(0);
+            String first = persons.get(0).getFirstName();
+            if(first.equals("first7")){
+                nextCommitted.await(10, TimeUnit.SECONDS);
+                throw new IllegalStateException("Connection lost");
+            }
+            Object imported = invocation.callRealMethod();
+            if(first.equals("first14")){
+                nextCommitted.countDown();
+            }
+            return imported;
+        }).when(personService).importPersons(Mockito.anyList());
+
+        Assertions.assertThatThrownBy(() -> personImportService.importPersons("persons.csv", null, true))
+                .isInstanceOf(IllegalStateException.class);
+        Assertions.assertThat(personRepository.findAll()).extracting(Person::getFirstName).contains("first14", "first20")
+                .doesNotContain("first7", "first13");
+        Assertions.assertThat(Files.readString(DIRECTORY.resolve("persons.csv.checkpoint"))).contains("row=7", "committed=");
+
+        Mockito.reset(personService);
+        ImportResultDto resumed = personImportService.importPersons("persons.csv", null, true);
+
+        Assertions.assertThat(resumed.getResumedAfterRow()).isEqualTo(7);
+        Assertions.assertThat(resumed.getSkipped()).isPositive();
+        Assertions.assertThat(resumed.getImported() + resumed.getSkipped()).isEqualTo(23);
+        Assertions.assertThat(personRepository.count()).isEqualTo(30);
+        Assertions.assertThat(personRepository.findAll()).extracting(Person::getFirstName).doesNotHaveDuplicates();
+        Assertions.assertThat(Files.readString(DIRECTORY.resolve("persons.csv.checkpoint")))
+                .contains("offset=" + Files.size(file), "row=30").doesNotContain("committed=");
+    }
+
+    @Test
+    void PersonImportService_importPersons_resumeReportsEachRejectedRowOnce() throws Exception{
+        Path file = DIRECTORY.resolve("persons.csv");
+        // Rejected rows 11 and 19: in the batch that fails, then in the batch committed after it
+        Files.writeString(file, "firstName,lastName,birthDate\n" + csvRows(0, 10) + "bad,row,yesterday\n"
+                + csvRows(10, 17) + "bad,row,tomorrow\n" + csvRows(17, 30), StandardCharsets.UTF_8);
+        CountDownLatch nextCommitted = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            List<Person> persons = invocation.getArgument(0);
+            String first = persons.get(0).getFirstName();
+            if(first.equals("first7")){
+                nextCommitted.await(10, TimeUnit.SECONDS);
+                throw new IllegalStateException("Connection lost");
+            }
+            Object imported = invocation.callRealMethod();
+            if(first.equals("first14")){
+                nextCommitted.countDown();
+            }
+            return imported;
+        }).when(personService).importPersons(Mockito.anyList());
+
+        Assertions.assertThatThrownBy(() -> personImportService.importPersons("persons.csv", null, true))
+                .isInstanceOf(IllegalStateException.class);
+        Mockito.reset(personService);
+        ImportResultDto resumed = personImportService.importPersons("persons.csv", null, true);
+
+        Assertions.assertThat(resumed.getResumedAfterRow()).isEqualTo(7);
+        Assertions.assertThat(resumed.getRejected()).isEqualTo(1);
+        Assertions.assertThat(personRepository.count()).isEqualTo(30);
+        Assertions.assertThat(Files.readAllLines(DIRECTORY.resolve("persons.csv.errors.csv")))
+                .hasSize(3).startsWith("row,error").doesNotHaveDuplicates()
+                .anyMatch(line -> line.startsWith("11,")).anyMatch(line -> line.startsWith("19,"));
+    }
+
+    @Test
+    void PersonImportService_truncateErrorReport_keepRowsUpToTheCheckpoint() throws Exception{
+        Path errors = DIRECTORY.resolve("persons.csv.errors.csv");
+        // The last line was cut short by a crash
+        Files.writeString(errors, "row,error\n3,\"Bad date\nyesterday\"\n9,Bad date\n12,Bad", StandardCharsets.UTF_8);
+
+        PersonImportService.truncateErrorReport(errors, 10);
+        Assertions.assertThat(Files.readString(errors)).isEqualTo("row,error\n3,\"Bad date\nyesterday\"\n9,Bad date\n");
+        PersonImportService.truncateErrorReport(errors, 0);
+        Assertions.assertThat(Files.readString(errors)).isEqualTo("row,error\n");
+    }
+
+    @Test
+    void PersonImportService_importPersons_onlyFilesOfTheImportDirectory(){
+        Assertions.assertThatThrownBy(() -> personImportService.importPersons("../../pom.xml", ImportFormat.CSV, true))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> personImportService.importPersons("missing.csv", null, true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,66 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.SearchField;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class PersonNameIndexTest {
+    private PersonNameIndex personNameIndex;
+
+    @BeforeEach
+    void setup(){
+        // No transaction around put/remove: they are applied right away
+        personNameIndex = new PersonNameIndex(Mockito.mock(PersonRepository.class),
+                Mockito.mock(TransactionTemplate.class), new PersonProperties());
+        personNameIndex.put(1L, "Salima", "Gaudin");
+        personNameIndex.put(2L, "Amine", "Rabat");
+        personNameIndex.put(3L, "Lina", "Salimi");
+        personNameIndex.put(4L, "Karim", "Benali");
+    }
+
+    @Test
+    void PersonNameIndex_search_returnIdsContainingKeywordIgnoringCase(){
+        Assertions.assertThat(personNameIndex.search("ALIM", SearchField.FIRST_NAME, 0, 10)).containsExactly(1L);
+        Assertions.assertThat(personNameIndex.search("alim", SearchField.LAST_NAME, 0, 10)).containsExactly(3L);
+        Assertions.assertThat(personNameIndex.search("alim", SearchField.ANY, 0, 10)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void PersonNameIndex_search_verifyCandidatesAgainstWholeKeyword(){
+        // "ina" and "nal" trigrams both exist, "inal" does not
+        Assertions.assertThat(personNameIndex.search("inal", SearchField.ANY, 0, 10)).isEmpty();
+    }
+
+    @Test
+    void PersonNameIndex_search_rejectKeywordsShorterThanTrigram(){
+        // No trigram to look up, PersonService scans the table instead
+        Assertions.assertThatThrownBy(() -> personNameIndex.search("in", SearchField.ANY, 0, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void PersonNameIndex_search_pageInIdOrder(){
+        Assertions.assertThat(personNameIndex.search("ali", SearchField.ANY, 1, 2)).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void PersonNameIndex_put_replaceOldNames(){
+        personNameIndex.put(1L, "Nadia", "Gaudin");
+
+        Assertions.assertThat(personNameIndex.search("salima", SearchField.FIRST_NAME, 0, 10)).isEmpty();
+        Assertions.assertThat(personNameIndex.search("nadia", SearchField.FIRST_NAME, 0, 10)).containsExactly(1L);
+    }
+
+    @Test
+    void PersonNameIndex_remove_forgetPerson(){
+        personNameIndex.remove(3L);
+
+        Assertions.assertThat(personNameIndex.search("alim", SearchField.ANY, 0, 10)).containsExactly(1L);
+        Assertions.assertThat(personNameIndex.size()).isEqualTo(3);
+    }
+}
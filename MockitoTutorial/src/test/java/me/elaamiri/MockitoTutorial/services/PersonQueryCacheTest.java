@@ -0,0 +1,133 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+class PersonQueryCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+    private PersonProperties personProperties;
+    private InProcessInvalidationChannel channel;
+
+    private final Person person1 = Person.builder().id(1L).firstName("salima").lastName("Gau")
+            .birthDate(Date.valueOf("1999-01-07")).build();
+
+    private final Supplier<List<Person>> loader = () -> {
+        loads.incrementAndGet();
+        return List.of(person1);
+    };
+
+    @BeforeEach
+    void setup(){
+        personProperties = new PersonProperties();
+        channel = new InProcessInvalidationChannel();
+    }
+
+    private PersonQueryCache queryCache(PersonCache personCache, EntityManagerFactory entityManagerFactory){
+        return new PersonQueryCache(personProperties, new Jackson2ObjectMapperBuilder(), channel, personCache, entityManagerFactory, null);
+    }
+
+    @Test
+    void PersonQueryCache_get_hitUntilNextWrite(){
+        PersonQueryCache queryCache = queryCache(new PersonCache(personProperties), null);
+
+        queryCache.get("all", loader);
+        List<Person> cached = queryCache.get("all", loader);
+        queryCache.written(List.of(2L));
+        queryCache.get("all", loader);
+
+        Assertions.assertThat(cached).containsExactly(person1);
+        // Each caller gets its own copy, with the types Hibernate would have returned
+        Assertions.assertThat(cached.get(0)).isNotSameAs(person1);
+        Assertions.assertThat(cached.get(0).getBirthDate()).isInstanceOf(java.sql.Date.class);
+        Assertions.assertThat(loads).hasValue(2);
+        Assertions.assertThat(queryCache.stats().getHitCount()).isEqualTo(1);
+        Assertions.assertThat(queryCache.stats().getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    void PersonQueryCache_get_resultOfAQueryRacingAWriteIsNotReused(){
+        PersonQueryCache queryCache = queryCache(new PersonCache(personProperties), null);
+
+        // The write lands while the query runs: its result may predate the write
+        queryCache.get("all", () -> {
+            queryCache.written(List.of(1L));
+            return loader.get();
+        });
+        queryCache.get("all", loader);
+
+        Assertions.assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void PersonQueryCache_written_invalidateOtherInstances(){
+        PersonCache otherPersonCache = new PersonCache(personProperties);
+        EntityManagerFactory otherEntityManagerFactory = Mockito.mock(EntityManagerFactory.class, Mockito.RETURNS_DEEP_STUBS);
+        PersonQueryCache instance = queryCache(new PersonCache(personProperties), null);
+        PersonQueryCache other = queryCache(otherPersonCache, otherEntityManagerFactory);
+        other.get("all", loader);
+        otherPersonCache.get(1L, id -> Optional.of(person1));
+
+        instance.written(List.of(1L));
+        other.get("all", loader);
+
+        Assertions.assertThat(loads).hasValue(2);
+        Assertions.assertThat(otherPersonCache.getIfCached(1L)).isEmpty();
+        Mockito.verify(otherEntityManagerFactory.getCache()).evict(Person.class, 1L);
+    }
+
+    @Test
+    void PersonQueryCache_invalidated_dropEveryPersonWhenNoIds(){
+        PersonCache personCache = new PersonCache(personProperties);
+        EntityManagerFactory entityManagerFactory = Mockito.mock(EntityManagerFactory.class, Mockito.RETURNS_DEEP_STUBS);
+        PersonQueryCache queryCache = queryCache(personCache, entityManagerFactory);
+        personCache.get(1L, id -> Optional.of(person1));
+
+        // Another instance could not tell which persons it wrote
+        channel.publish(new PersonInvalidationChannel.Invalidation("other", List.of()));
+
+        Assertions.assertThat(personCache.getIfCached(1L)).isEmpty();
+        Mockito.verify(entityManagerFactory.getCache()).evict(Person.class);
+    }
+
+    @Test
+    void PersonQueryCache_written_droppedAgainAfterReplicaLag() throws InterruptedException {
+        personProperties.getRouting().setEnabled(true);
+        personProperties.getRouting().setMaxReplicaLag(Duration.ofMillis(50));
+        PersonCache personCache = new PersonCache(personProperties);
+        PersonQueryCache queryCache = queryCache(personCache, null);
+
+        queryCache.written(List.of(1L));
+        // Read right after the write, from a replica that may not have it yet
+        queryCache.get("all", loader);
+        personCache.get(1L, id -> Optional.of(person1));
+        Thread.sleep(500);
+        queryCache.get("all", loader);
+
+        Assertions.assertThat(loads).hasValue(2);
+        Assertions.assertThat(personCache.getIfCached(1L)).isEmpty();
+    }
+
+    @Test
+    void PersonQueryCache_get_disabledAlwaysLoads(){
+        personProperties.getQueryCache().setEnabled(false);
+        PersonQueryCache queryCache = queryCache(new PersonCache(personProperties), null);
+
+        queryCache.get("all", loader);
+        queryCache.get("all", loader);
+
+        Assertions.assertThat(loads).hasValue(2);
+    }
+}
@@ -0,0 +1,104 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import me.elaamiri.MockitoTutorial.dtos.BatchResultDto;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Real transactions are needed to see the chunk commits, so no @DataJpaTest rollback here
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class PersonServiceBatchTest {
+    @Autowired
+    private PersonService personService;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup(){
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanup(){
+        personRepository.deleteAllInBatch();
+    }
+
+    private List<PersonDto> personDtos(int count){
+        return IntStream.range(0, count)
+                .mapToObj(i -> PersonDto.builder().firstName("person" + i + "fn").lastName("person" + i + "ln").build())
+                .toList();
+    }
+
+    @Test
+    void PersonService_createPersons_insertInJdbcBatches(){
+        // Act
+        BatchResultDto result = personService.createPersons(personDtos(120), 60);
+
+        // Assert
+        Assertions.assertThat(result.getProcessed()).isEqualTo(120);
+        Assertions.assertThat(result.getChunks()).isEqualTo(2);
+        Assertions.assertThat(result.getRecordsPerSecond()).isPositive();
+        Assertions.assertThat(personRepository.count()).isEqualTo(120);
+        Assertions.assertThat(statistics.getEntityInsertCount()).isEqualTo(120);
+        // hibernate.jdbc.batch_size=50 => a handful of batches (plus sequence calls) instead of 120 statements
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isLessThan(15);
+    }
+
+    @Test
+    void PersonService_createPersons_useDefaultChunkSize(){
+        BatchResultDto result = personService.createPersons(personDtos(10), null);
+
+        Assertions.assertThat(result.getChunkSize()).isEqualTo(500);
+        Assertions.assertThat(result.getChunks()).isEqualTo(1);
+    }
+
+    @Test
+    void PersonService_updatePersons_skipUnknownIds(){
+        // Arrange
+        personService.createPersons(personDtos(3), null);
+        List<Person> saved = personRepository.findAll();
+        List<PersonDto> updates = saved.stream()
+                .map(p -> PersonDto.builder().id(p.getId()).firstName("updated").lastName(p.getLastName()).build())
+                .collect(Collectors.toCollection(ArrayList::new));
+        updates.add(PersonDto.builder().id(-1L).firstName("ghost").build());
+        updates.add(PersonDto.builder().firstName("no id").build());
+
+        // Act
+        BatchResultDto result = personService.updatePersons(updates, 2);
+
+        // Assert
+        Assertions.assertThat(result.getRequested()).isEqualTo(5);
+        Assertions.assertThat(result.getProcessed()).isEqualTo(3);
+        Assertions.assertThat(personRepository.findAll()).extracting(Person::getFirstName).containsOnly("updated");
+    }
+
+    @Test
+    void PersonService_deletePersonsByIds_returnDeletedCount(){
+        personService.createPersons(personDtos(4), null);
+        List<Long> ids = personRepository.findAll().stream().map(Person::getId).toList();
+
+        BatchResultDto result = personService.deletePersonsByIds(List.of(ids.get(0), ids.get(1), -1L), 2);
+
+        Assertions.assertThat(result.getProcessed()).isEqualTo(2);
+        Assertions.assertThat(personRepository.count()).isEqualTo(2);
+    }
+}
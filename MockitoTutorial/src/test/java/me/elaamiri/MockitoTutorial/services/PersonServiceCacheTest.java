@@ -0,0 +1,95 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import me.elaamiri.MockitoTutorial.repositories.PersonTombstoneRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class) // JUnit 5
+class PersonServiceCacheTest {
+    @Mock
+    private PersonRepository personRepository;
+
+    @Spy
+    private PersonCache personCache = new PersonCache(new PersonProperties());
+
+    @Mock
+    private PersonNameIndex personNameIndex;
+
+    @Mock
+    private PersonTombstoneRepository personTombstoneRepository;
+
+    @Mock
+    private PersonQueryCache personQueryCache;
+
+    @Mock
+    private PersonChangeSequencer personChangeSequencer;
+
+    @InjectMocks
+    private PersonService personService;
+
+    private final Person person1 = Person.builder().id(1L).firstName("salima").lastName("Gau").build();
+
+    @Test
+    void PersonService_getPersonById_hitDatabaseOnce(){
+        Mockito.when(personRepository.findById(1L)).thenReturn(Optional.of(person1));
+
+        personService.getPersonById(1L);
+        Optional<Person> retrieved = personService.getPersonById(1L);
+
+        Assertions.assertThat(retrieved).contains(person1);
+        Mockito.verify(personRepository, Mockito.times(1)).findById(1L);
+    }
+
+    @Test
+    void PersonService_updatePerson_invalidateCachedPerson(){
+        // Arrange: cache the person
+        Mockito.when(personRepository.findById(1L)).thenReturn(Optional.of(person1));
+        Mockito.when(personRepository.updateById(Mockito.eq(1L), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(1);
+        personService.getPersonById(1L);
+
+        // Act
+        personService.updatePerson(PersonDto.builder().id(1L).firstName("updated").build());
+        personService.getPersonById(1L);
+
+        // Assert: read once to cache, once after the invalidation
+        Mockito.verify(personRepository, Mockito.times(2)).findById(1L);
+    }
+
+    @Test
+    void PersonService_createPerson_forgetCachedMissingId(){
+        // Arrange: id 1 is looked up before it exists
+        Mockito.when(personRepository.findById(1L)).thenReturn(Optional.empty()).thenReturn(Optional.of(person1));
+        Mockito.when(personRepository.save(Mockito.any(Person.class))).thenReturn(person1);
+        Assertions.assertThat(personService.getPersonById(1L)).isEmpty();
+
+        // Act
+        personService.createPerson(PersonDto.builder().firstName("salima").build());
+
+        // Assert
+        Assertions.assertThat(personService.getPersonById(1L)).contains(person1);
+    }
+
+    @Test
+    void PersonService_deletePersonById_invalidateCachedPerson(){
+        Mockito.when(personRepository.findById(1L)).thenReturn(Optional.of(person1)).thenReturn(Optional.empty());
+        Mockito.when(personRepository.removeById(1L)).thenReturn(1);
+        personService.getPersonById(1L);
+
+        personService.deletePersonById(1L);
+
+        Assertions.assertThat(personService.getPersonById(1L)).isEmpty();
+    }
+}
@@ -0,0 +1,124 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import me.elaamiri.MockitoTutorial.dtos.ChangeFeedDto;
+import me.elaamiri.MockitoTutorial.dtos.ChangeToken;
+import me.elaamiri.MockitoTutorial.dtos.ChangeType;
+import me.elaamiri.MockitoTutorial.dtos.PersonChangeDto;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import me.elaamiri.MockitoTutorial.repositories.PersonTombstoneRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest(properties = "persons.changes.settle-time=50ms")
+class PersonServiceChangesTest {
+    @Autowired
+    private PersonService personService;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private PersonTombstoneRepository personTombstoneRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    @AfterEach
+    void cleanup(){
+        personRepository.deleteAllInBatch();
+        personTombstoneRepository.deleteAllInBatch();
+    }
+
+    private Person create(String firstName){
+        return personService.createPerson(PersonDto.builder().firstName(firstName).lastName("Gau").build());
+    }
+
+    // Lets the writes get older than the settle time
+    private static void settle() throws InterruptedException{
+        Thread.sleep(100);
+    }
+
+    @Test
+    void PersonService_getChanges_returnOnlyWhatChangedSinceToken() throws Exception{
+        Person salima = create("salima");
+        Person amine = create("amine");
+        Person karim = create("karim");
+        settle();
+        ChangeFeedDto first = personService.getChanges(ChangeToken.START, 100);
+
+        personService.updatePerson(PersonDto.builder().id(amine.getId()).firstName("amine2").lastName("Rab").build());
+        personService.deletePersonById(karim.getId());
+        settle();
+        ChangeFeedDto second = personService.getChanges(ChangeToken.parse(first.getNext()), 100);
+
+        Assertions.assertThat(first.getChanges()).extracting(PersonChangeDto::getId)
+                .containsExactly(salima.getId(), amine.getId(), karim.getId());
+        Assertions.assertThat(first.isHasMore()).isFalse();
+        Assertions.assertThat(second.getChanges()).extracting(PersonChangeDto::getId, PersonChangeDto::getType)
+                .containsExactly(Assertions.tuple(amine.getId(), ChangeType.UPSERTED), Assertions.tuple(karim.getId(), ChangeType.DELETED));
+        Assertions.assertThat(second.getChanges().get(0).getPerson().getFirstName()).isEqualTo("amine2");
+        Assertions.assertThat(second.getChanges().get(1).getPerson()).isNull();
+        Assertions.assertThat(personService.getChanges(ChangeToken.parse(second.getNext()), 100).getChanges()).isEmpty();
+    }
+
+    @Test
+    void PersonService_getChanges_pageThroughChanges() throws Exception{
+        personService.createPersons(List.of(PersonDto.builder().firstName("a").build(), PersonDto.builder().firstName("b").build(),
+                PersonDto.builder().firstName("c").build()), null);
+        settle();
+
+        ChangeFeedDto first = personService.getChanges(ChangeToken.START, 2);
+        ChangeFeedDto second = personService.getChanges(ChangeToken.parse(first.getNext()), 2);
+
+        Assertions.assertThat(first.getChanges()).hasSize(2);
+        Assertions.assertThat(first.isHasMore()).isTrue();
+        Assertions.assertThat(second.getChanges()).hasSize(1);
+        Assertions.assertThat(second.isHasMore()).isFalse();
+    }
+
+    @Test
+    void PersonService_getChanges_holdBackChangesYoungerThanSettleTime(){
+        create("salima");
+
+        ChangeFeedDto feed = personService.getChanges(ChangeToken.START, 100);
+
+        Assertions.assertThat(feed.getChanges()).isEmpty();
+        Assertions.assertThat(feed.getNext()).isEqualTo(ChangeToken.START.toString());
+    }
+
+    @Test
+    void PersonService_getChanges_returnWriteCommittedAfterTheWatermark() throws Exception{
+        // A slow transaction writes first and commits once a later write was returned by the feed
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch returned = new CountDownLatch(1);
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            personService.importPersons(List.of(Person.builder().firstName("slow").lastName("Gau").build()));
+            written.countDown();
+            try {
+                returned.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        Assertions.assertThat(written.await(10, TimeUnit.SECONDS)).isTrue();
+        Person fast = create("fast");
+        settle();
+        ChangeFeedDto first = personService.getChanges(ChangeToken.START, 100);
+        returned.countDown();
+        slow.get(10, TimeUnit.SECONDS);
+        ChangeFeedDto second = personService.getChanges(ChangeToken.parse(first.getNext()), 100);
+
+        Assertions.assertThat(first.getChanges()).extracting(PersonChangeDto::getId).containsExactly(fast.getId());
+        Assertions.assertThat(second.getChanges()).extracting(change -> change.getPerson().getFirstName()).containsExactly("slow");
+    }
+}
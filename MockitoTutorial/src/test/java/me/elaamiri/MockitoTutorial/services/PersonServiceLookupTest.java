@@ -0,0 +1,78 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.dtos.PersonLookupDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true", "persons.lookup.chunk-size=2"})
+class PersonServiceLookupTest {
+    @Autowired
+    private PersonService personService;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Person salima;
+    private Person amine;
+    private Person karim;
+    // Never used by a person, nor looked up by another test
+    private final long missingId = -System.nanoTime();
+
+    @BeforeEach
+    void setup(){
+        salima = personService.createPerson(PersonDto.builder().firstName("salima").lastName("Gau").build());
+        amine = personService.createPerson(PersonDto.builder().firstName("amine").lastName("Rab").build());
+        karim = personService.createPerson(PersonDto.builder().firstName("karim").lastName("Benali").build());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanup(){
+        personRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void PersonService_lookupPersons_returnDistinctIdsInRequestOrder(){
+        List<PersonLookupDto> result = personService.lookupPersons(
+                List.of(amine.getId(), salima.getId(), missingId, salima.getId(), karim.getId()));
+
+        Assertions.assertThat(result).extracting(PersonLookupDto::getId)
+                .containsExactly(amine.getId(), salima.getId(), missingId, karim.getId());
+        Assertions.assertThat(result).extracting(PersonLookupDto::isFound).containsExactly(true, true, false, true);
+        Assertions.assertThat(result.get(0).getPerson().getFirstName()).isEqualTo("amine");
+        Assertions.assertThat(result.get(2).getPerson()).isNull();
+        // 4 distinct ids, IN lists of 2
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void PersonService_lookupPersons_readOnlyWhatIsNotCached(){
+        personService.getPersonById(salima.getId());
+        statistics.clear();
+
+        personService.lookupPersons(List.of(salima.getId(), amine.getId()));
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        // Everything cached now, missing ids included
+        personService.lookupPersons(List.of(missingId));
+        statistics.clear();
+        List<PersonLookupDto> cached = personService.lookupPersons(List.of(amine.getId(), missingId, salima.getId()));
+        Assertions.assertThat(cached).extracting(PersonLookupDto::isFound).containsExactly(true, false, true);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+}
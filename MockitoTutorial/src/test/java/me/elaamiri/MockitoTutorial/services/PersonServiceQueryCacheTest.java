@@ -0,0 +1,94 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.dtos.SearchField;
+import me.elaamiri.MockitoTutorial.dtos.SearchMode;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        // Person reads by id go to Hibernate, so they hit the second-level cache
+        "persons.cache.enabled=false"
+})
+class PersonServiceQueryCacheTest {
+    @Autowired
+    private PersonService personService;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Person salima;
+
+    @BeforeEach
+    void setup(){
+        salima = personService.createPerson(PersonDto.builder().firstName("Salima").lastName("Gaudin").build());
+        personService.createPerson(PersonDto.builder().firstName("Salim").lastName("Rabat").build());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanup(){
+        personRepository.findAll().forEach(person -> personService.deletePersonById(person.getId()));
+    }
+
+    private List<Person> search(){
+        return personService.searchPersons("Sal", SearchField.FIRST_NAME, SearchMode.PREFIX, 0, 10);
+    }
+
+    @Test
+    void PersonService_searchPersons_servedFromQueryCacheUntilNextWrite(){
+        long hitsBefore = personService.getQueryCacheStats().getHitCount();
+        search();
+        long statements = statistics.getPrepareStatementCount();
+
+        Assertions.assertThat(search()).extracting(Person::getFirstName).containsExactly("Salim", "Salima");
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+        Assertions.assertThat(personService.getQueryCacheStats().getHitCount()).isEqualTo(hitsBefore + 1);
+
+        personService.createPerson(PersonDto.builder().firstName("Salah").lastName("Idrissi").build());
+        Assertions.assertThat(search()).extracting(Person::getFirstName).containsExactly("Salah", "Salim", "Salima");
+
+        personService.updatePerson(PersonDto.builder().id(salima.getId()).firstName("Nadia").lastName("Gaudin").build());
+        Assertions.assertThat(search()).extracting(Person::getFirstName).containsExactly("Salah", "Salim");
+    }
+
+    @Test
+    void PersonService_getAllPersons_servedFromQueryCacheUntilNextWrite(){
+        Assertions.assertThat(personService.getAllPersons()).hasSize(2);
+        long statements = statistics.getPrepareStatementCount();
+        Assertions.assertThat(personService.getAllPersons()).hasSize(2);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+
+        personService.deletePersonById(salima.getId());
+        Assertions.assertThat(personService.getAllPersons()).hasSize(1);
+    }
+
+    @Test
+    void PersonService_getPersonById_secondLevelCacheHit(){
+        // Put in the region when read (the insert itself does not cache it)
+        personService.getPersonById(salima.getId());
+        long statements = statistics.getPrepareStatementCount();
+
+        Assertions.assertThat(personService.getPersonById(salima.getId())).get()
+                .extracting(Person::getFirstName).isEqualTo("Salima");
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+        Assertions.assertThat(personService.getSecondLevelCacheStats().getHitCount()).isPositive();
+        Assertions.assertThat(personService.getSecondLevelCacheStats().getHitRate()).isPositive();
+    }
+}
@@ -0,0 +1,144 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import jakarta.persistence.EntityManager;
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.dtos.SearchField;
+import me.elaamiri.MockitoTutorial.dtos.SearchMode;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import me.elaamiri.MockitoTutorial.repositories.PersonTombstoneRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+@SpringBootTest
+class PersonServiceSearchTest {
+    @Autowired
+    private PersonService personService;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PersonTombstoneRepository personTombstoneRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private PersonChangeSequencer personChangeSequencer;
+
+    @BeforeEach
+    void setup(){
+        personService.createPerson(PersonDto.builder().firstName("Salima").lastName("Gaudin").build());
+        personService.createPerson(PersonDto.builder().firstName("Salim").lastName("Rabat").build());
+        personService.createPerson(PersonDto.builder().firstName("Lina").lastName("Salimi").build());
+    }
+
+    @AfterEach
+    void cleanup(){
+        personRepository.findAll().forEach(person -> personService.deletePersonById(person.getId()));
+    }
+
+    @Test
+    void PersonService_searchPersons_prefixOnFirstName(){
+        List<Person> persons = personService.searchPersons("Sal", SearchField.FIRST_NAME, SearchMode.PREFIX, 0, 10);
+
+        Assertions.assertThat(persons).extracting(Person::getFirstName).containsExactly("Salim", "Salima");
+    }
+
+    @Test
+    void PersonService_searchPersons_prefixOnEitherName(){
+        List<Person> persons = personService.searchPersons("Sal", SearchField.ANY, SearchMode.PREFIX, 0, 10);
+        List<Person> secondPage = personService.searchPersons("Sal", SearchField.ANY, SearchMode.PREFIX, 1, 2);
+
+        Assertions.assertThat(persons).extracting(Person::getLastName).containsExactly("Gaudin", "Rabat", "Salimi");
+        Assertions.assertThat(secondPage).extracting(Person::getLastName).containsExactly("Salimi");
+    }
+
+    @Test
+    void PersonService_searchPersons_containsThroughTrigramIndex(){
+        List<Person> persons = personService.searchPersons("ALIM", SearchField.ANY, SearchMode.CONTAINS, 0, 10);
+
+        Assertions.assertThat(persons).extracting(Person::getLastName).containsExactly("Gaudin", "Rabat", "Salimi");
+    }
+
+    @Test
+    void PersonService_searchPersons_containsShortKeywordFromTable(){
+        List<Person> persons = personService.searchPersons("LI", SearchField.ANY, SearchMode.CONTAINS, 0, 10);
+
+        Assertions.assertThat(persons).extracting(Person::getLastName).containsExactly("Gaudin", "Rabat", "Salimi");
+    }
+
+    @Test
+    void PersonService_searchPersons_containsSeeUpdates(){
+        Person lina = personService.searchPersons("Lina", SearchField.FIRST_NAME, SearchMode.PREFIX, 0, 1).get(0);
+
+        personService.updatePerson(PersonDto.builder().id(lina.getId()).firstName("Nadia").lastName("Berrada").build());
+
+        Assertions.assertThat(personService.searchPersons("alim", SearchField.ANY, SearchMode.CONTAINS, 0, 10)).hasSize(2);
+        Assertions.assertThat(personService.searchPersons("rrad", SearchField.LAST_NAME, SearchMode.CONTAINS, 0, 10))
+                .extracting(Person::getId).containsExactly(lina.getId());
+    }
+
+    // An application instance of its own (caches, search index) on the shared database
+    private PersonService instance(PersonInvalidationChannel channel){
+        PersonProperties personProperties = new PersonProperties();
+        PersonCache personCache = new PersonCache(personProperties);
+        PersonNameIndex personNameIndex = new PersonNameIndex(personRepository, transactionTemplate, personProperties);
+        PersonQueryCache personQueryCache = new PersonQueryCache(personProperties, new Jackson2ObjectMapperBuilder(),
+                channel, personCache, null, personNameIndex);
+        personNameIndex.load();
+        return new PersonService(personRepository, entityManager, transactionTemplate, personProperties, personCache,
+                personNameIndex, personTombstoneRepository, personQueryCache, personChangeSequencer);
+    }
+
+    @Test
+    void PersonService_searchPersons_containsSeeWritesOfOtherInstances(){
+        InProcessInvalidationChannel channel = new InProcessInvalidationChannel();
+        PersonService writer = instance(channel);
+        PersonService reader = instance(channel);
+        Person lina = reader.searchPersons("Lina", SearchField.FIRST_NAME, SearchMode.PREFIX, 0, 1).get(0);
+        Assertions.assertThat(reader.searchPersons("alim", SearchField.ANY, SearchMode.CONTAINS, 0, 10)).hasSize(3);
+
+        // Not a proxied bean: the test runs the transactions of its writes
+        transactionTemplate.executeWithoutResult(status ->
+                writer.updatePerson(PersonDto.builder().id(lina.getId()).firstName("Nadia").lastName("Berrada").build()));
+        Person karim = transactionTemplate.execute(status ->
+                writer.createPerson(PersonDto.builder().firstName("Karim").lastName("Halimi").build()));
+
+        Assertions.assertThat(reader.searchPersons("alim", SearchField.ANY, SearchMode.CONTAINS, 0, 10))
+                .extracting(Person::getLastName).containsExactly("Gaudin", "Rabat", "Halimi");
+        Assertions.assertThat(reader.searchPersons("rrad", SearchField.LAST_NAME, SearchMode.CONTAINS, 0, 10))
+                .extracting(Person::getId).containsExactly(lina.getId());
+
+        transactionTemplate.executeWithoutResult(status -> writer.deletePersonById(karim.getId()));
+
+        Assertions.assertThat(reader.searchPersons("alim", SearchField.ANY, SearchMode.CONTAINS, 0, 10))
+                .extracting(Person::getLastName).containsExactly("Gaudin", "Rabat");
+    }
+
+    @Test
+    void PersonService_searchPersons_capPaging(){
+        // persons.search.max-results=1000
+        Assertions.assertThat(personService.searchPersons("S", SearchField.ANY, SearchMode.PREFIX, 1000, 1)).isEmpty();
+        Assertions.assertThat(personService.searchPersons("S", SearchField.ANY, SearchMode.PREFIX, 1, 1)).hasSize(1);
+    }
+
+    @Test
+    void Person_table_haveNameIndexes(){
+        List<String> indexes = jdbcTemplate.queryForList(
+                "select index_name from information_schema.indexes where table_name = 'PERSON'", String.class);
+
+        Assertions.assertThat(indexes).contains("IDX_PERSON_FIRST_NAME", "IDX_PERSON_LAST_NAME");
+    }
+}
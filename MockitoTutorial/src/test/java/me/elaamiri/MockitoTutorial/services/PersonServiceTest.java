@@ -1,8 +1,10 @@
 package me.elaamiri.MockitoTutorial.services;
 
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
 import me.elaamiri.MockitoTutorial.dtos.PersonDto;
 import me.elaamiri.MockitoTutorial.entities.Person;
 import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import me.elaamiri.MockitoTutorial.repositories.PersonTombstoneRepository;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,6 +12,7 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -24,6 +27,21 @@ public class PersonServiceTest {
     @Mock
     private PersonRepository personRepository;  // I dont want the real behavior of the repo, so I mock it
 
+    @Spy // A real cache in front of the mocked repository
+    private PersonCache personCache = new PersonCache(new PersonProperties());
+
+    @Mock
+    private PersonNameIndex personNameIndex;
+
+    @Mock
+    private PersonTombstoneRepository personTombstoneRepository;
+
+    @Mock
+    private PersonQueryCache personQueryCache;
+
+    @Mock
+    private PersonChangeSequencer personChangeSequencer;
+
     @InjectMocks // Assuming PersonService uses PersonRepository
     private PersonService personService;
 
@@ -66,27 +84,23 @@ public class PersonServiceTest {
 
     @Test
     public void PersonService_deletePersonById_returnTrueIfDeleted(){
-        Person personMock = Mockito.mock(Person.class);
-
-        Mockito.doReturn(Optional.of(personMock)).when(personRepository).findById(1L);
-        // Mock the delete method to do nothing
-        Mockito.doNothing().when(personRepository).deleteById(Mockito.anyLong());
+        // The service deletes with a single DELETE statement, no findById before
+        // Mock the delete method to report one deleted row
+        Mockito.doReturn(1).when(personRepository).removeById(Mockito.anyLong());
         // Call the method under test
         boolean deleted = personService.deletePersonById(1L);
         // Verify the method was called 1 time
-        Mockito.verify(personRepository, Mockito.times(1)).deleteById(1L);
+        Mockito.verify(personRepository, Mockito.times(1)).removeById(1L);
         // Verify the return is true
         Assertions.assertThat(deleted).isTrue();
     }
 
     @Test
     public void PersonService_deletePersonById_deleteByIdThrowsException(){
-        Person personMock = Mockito.mock(Person.class);
-
-        Mockito.doReturn(Optional.of(personMock)).when(personRepository).findById(1L);
+        // The service deletes with a single DELETE statement, no findById before
         // Mock the findById method to throw an exception
         //Mockito.when(personRepository.deleteById(1L)).thenThrow(new RuntimeException("Database error")); // Does not work because deleteById return nothing its void
-        Mockito.doThrow(new RuntimeException("Database error")).when(personRepository).deleteById(1L);
+        Mockito.doThrow(new RuntimeException("Database error")).when(personRepository).removeById(1L);
 
         // Verify that the exception is thrown
        Assertions.assertThatThrownBy(()-> personService.deletePersonById(1L))
@@ -97,12 +111,10 @@ public class PersonServiceTest {
 
     @Test
     public void PersonService_deletePersonById_returnFalseWhenFindByIdThrowsException(){
-        Person personMock = Mockito.mock(Person.class);
-
-        Mockito.doReturn(Optional.of(personMock)).when(personRepository).findById(1L);
+        // The service deletes with a single DELETE statement, no findById before
         // Mock the findById method to throw an exception
         //Mockito.when(personRepository.deleteById(1L)).thenThrow(new RuntimeException("Database error")); // Does not work because deleteById return nothing its void
-        Mockito.doThrow(new RuntimeException("Database error")).when(personRepository).deleteById(1L);
+        Mockito.doThrow(new RuntimeException("Database error")).when(personRepository).removeById(1L);
 
         // Verify
         Assertions.assertThat(personService.deletePersonById(1L)).isFalse();
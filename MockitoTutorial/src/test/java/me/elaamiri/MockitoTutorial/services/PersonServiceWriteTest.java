@@ -0,0 +1,94 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonRepository;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class PersonServiceWriteTest {
+    @Autowired
+    private PersonService personService;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Person saved;
+
+    @BeforeEach
+    void setup(){
+        saved = personService.createPerson(PersonDto.builder().firstName("salima").lastName("Gau").build());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanup(){
+        personRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void PersonService_updatePerson_noReadBeforeWrite(){
+        // Act
+        Person updated = personService.updatePerson(PersonDto.builder().id(saved.getId()).firstName("updated").lastName("Gau").build());
+
+        // Assert
+        Assertions.assertThat(updated.getFirstName()).isEqualTo("updated");
+        // The UPDATE, its new version read back (none was given), then the change clock tick and the change
+        // sequence of the person at commit
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+        Assertions.assertThat(statistics.getEntityLoadCount()).isZero();
+        Person fromDb = personRepository.findById(saved.getId()).orElseThrow();
+        Assertions.assertThat(fromDb.getFirstName()).isEqualTo("updated");
+        Assertions.assertThat(fromDb.getVersion()).isEqualTo(saved.getVersion() + 1);
+        Assertions.assertThat(updated.getVersion()).isEqualTo(fromDb.getVersion());
+    }
+
+    @Test
+    void PersonService_updatePerson_applyMatchingVersion(){
+        Person updated = personService.updatePerson(PersonDto.builder().id(saved.getId()).firstName("updated")
+                .version(saved.getVersion()).build());
+
+        Assertions.assertThat(updated.getVersion()).isEqualTo(saved.getVersion() + 1);
+        Assertions.assertThat(personRepository.findById(saved.getId()).orElseThrow().getVersion()).isEqualTo(updated.getVersion());
+    }
+
+    @Test
+    void PersonService_updatePerson_rejectStaleVersion(){
+        // Arrange: someone else updates first
+        personService.updatePerson(PersonDto.builder().id(saved.getId()).firstName("first writer").version(saved.getVersion()).build());
+
+        // Act & Assert
+        Assertions.assertThatThrownBy(() -> personService.updatePerson(PersonDto.builder().id(saved.getId())
+                        .firstName("second writer").version(saved.getVersion()).build()))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        Assertions.assertThat(personRepository.findById(saved.getId()).orElseThrow().getFirstName()).isEqualTo("first writer");
+    }
+
+    @Test
+    void PersonService_updatePerson_returnNullForUnknownId(){
+        Assertions.assertThat(personService.updatePerson(PersonDto.builder().id(-1L).firstName("ghost").version(0L).build())).isNull();
+    }
+
+    @Test
+    void PersonService_deletePersonById_oneStatementPlusTombstone(){
+        Assertions.assertThat(personService.deletePersonById(saved.getId())).isTrue();
+        // DELETE and the INSERT of the tombstone, no read before, then the change clock tick and the change sequence
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+        Assertions.assertThat(statistics.getEntityLoadCount()).isZero();
+
+        Assertions.assertThat(personService.deletePersonById(saved.getId())).isFalse();
+        Assertions.assertThat(personRepository.existsById(saved.getId())).isFalse();
+    }
+}
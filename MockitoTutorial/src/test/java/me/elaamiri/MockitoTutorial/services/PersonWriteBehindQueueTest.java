@@ -0,0 +1,131 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.dtos.WriteStatus;
+import me.elaamiri.MockitoTutorial.dtos.WriteTicketDto;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+@ExtendWith(MockitoExtension.class)
+class PersonWriteBehindQueueTest {
+    @Mock
+    private PersonService personService;
+
+    private PersonProperties personProperties;
+    private PersonWriteBehindQueue queue;
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setup(){
+        personProperties = new PersonProperties();
+        personProperties.getWriteBehind().setEnabled(true);
+        personProperties.getWriteBehind().setBatchSize(10);
+        personProperties.getWriteBehind().setFlushInterval(Duration.ofMillis(20));
+    }
+
+    @AfterEach
+    void tearDown(){
+        if(queue != null) queue.stop();
+    }
+
+    private void start(){
+        queue = new PersonWriteBehindQueue(personService, personProperties);
+        queue.start();
+    }
+
+    private List<Person> created(List<PersonDto> persons){
+        return persons.stream().map(person -> Person.builder().id(ids.incrementAndGet()).firstName(person.getFirstName()).build()).toList();
+    }
+
+    private static PersonDto person(int i){
+        return PersonDto.builder().firstName("first" + i).lastName("last" + i).build();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void PersonWriteBehindQueue_submit_coalesceIntoBatches() throws Exception{
+        Mockito.when(personService.insertPersons(ArgumentMatchers.anyList()))
+                .thenAnswer(invocation -> created(invocation.getArgument(0)));
+        start();
+
+        List<WriteTicketDto> tickets = IntStream.range(0, 35).mapToObj(i -> queue.submit(person(i))).toList();
+        queue.stop();
+
+        Assertions.assertThat(tickets).allMatch(ticket -> ticket.getStatus() == WriteStatus.QUEUED);
+        Assertions.assertThat(tickets).allSatisfy(ticket -> Assertions.assertThat(queue.getTicket(ticket.getHandle()))
+                .hasValueSatisfying(written -> {
+                    Assertions.assertThat(written.getStatus()).isEqualTo(WriteStatus.WRITTEN);
+                    Assertions.assertThat(written.getPersonId()).isNotNull();
+                }));
+        // 35 persons, batches of at most 10
+        Mockito.verify(personService, Mockito.atMost(35 / 2)).insertPersons(ArgumentMatchers.anyList());
+        Mockito.verify(personService, Mockito.never()).insertPersons(ArgumentMatchers.argThat(batch -> batch.size() > 10));
+        Mockito.verify(personService, Mockito.never()).createPerson(ArgumentMatchers.any());
+    }
+
+    @Test
+    void PersonWriteBehindQueue_submit_rejectWhenQueueStaysFull() throws Exception{
+        personProperties.getWriteBehind().setQueueCapacity(2);
+        personProperties.getWriteBehind().setBatchSize(1);
+        personProperties.getWriteBehind().setOfferTimeout(Duration.ofMillis(50));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(personService.insertPersons(ArgumentMatchers.anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return created(invocation.getArgument(0));
+        });
+        start();
+
+        queue.submit(person(0));
+        Assertions.assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        // The writer is busy with the first person: two fit in the queue, the next one waits and is refused
+        queue.submit(person(1));
+        queue.submit(person(2));
+        Assertions.assertThatThrownBy(() -> queue.submit(person(3))).isInstanceOf(RejectedExecutionException.class);
+
+        release.countDown();
+        queue.stop();
+        Assertions.assertThat(queue.queued()).isZero();
+        Mockito.verify(personService, Mockito.times(3)).insertPersons(ArgumentMatchers.anyList());
+        Assertions.assertThatThrownBy(() -> queue.submit(person(4))).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void PersonWriteBehindQueue_submit_writeOneByOneWhenBatchFails() throws Exception{
+        personProperties.getWriteBehind().setFlushInterval(Duration.ofMillis(200));
+        Mockito.when(personService.insertPersons(ArgumentMatchers.anyList())).thenThrow(new IllegalStateException("batch"));
+        Mockito.when(personService.createPerson(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            PersonDto person = invocation.getArgument(0);
+            if(person.getFirstName().equals("first1")) throw new IllegalStateException("bad person");
+            return created(List.of(person)).get(0);
+        });
+        start();
+
+        WriteTicketDto good = queue.submit(person(0));
+        WriteTicketDto bad = queue.submit(person(1));
+        queue.stop();
+
+        Assertions.assertThat(queue.getTicket(good.getHandle())).get()
+                .extracting(WriteTicketDto::getStatus).isEqualTo(WriteStatus.WRITTEN);
+        Assertions.assertThat(queue.getTicket(bad.getHandle())).get()
+                .extracting(WriteTicketDto::getError).isEqualTo("bad person");
+    }
+}
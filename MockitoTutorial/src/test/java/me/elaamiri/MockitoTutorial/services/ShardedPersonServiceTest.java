@@ -0,0 +1,139 @@
+package me.elaamiri.MockitoTutorial.services;
+
+import me.elaamiri.MockitoTutorial.config.PersonProperties;
+import me.elaamiri.MockitoTutorial.dtos.PersonDto;
+import me.elaamiri.MockitoTutorial.dtos.SearchField;
+import me.elaamiri.MockitoTutorial.dtos.SearchMode;
+import me.elaamiri.MockitoTutorial.entities.Person;
+import me.elaamiri.MockitoTutorial.repositories.PersonShard;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+class ShardedPersonServiceTest {
+    private static final int SHARDS = 3;
+
+    private PersonProperties personProperties;
+    private List<PersonShard> shards;
+    private ShardedPersonService shardedPersonService;
+
+    @BeforeEach
+    void setup(){
+        personProperties = new PersonProperties();
+        // Three embedded H2 databases, new ones for each test
+        String run = UUID.randomUUID().toString();
+        shards = IntStream.range(0, SHARDS)
+                .mapToObj(i -> new PersonShard(i, new DriverManagerDataSource("jdbc:h2:mem:" + run + "-" + i + ";DB_CLOSE_DELAY=-1", "sa", "")))
+                .toList();
+        shards.forEach(PersonShard::initSchema);
+        shardedPersonService = new ShardedPersonService(shards, personProperties);
+    }
+
+    @AfterEach
+    void cleanup() throws Exception {
+        shardedPersonService.destroy();
+    }
+
+    private Person create(String firstName, String lastName){
+        return shardedPersonService.createPerson(PersonDto.builder().firstName(firstName).lastName(lastName).build());
+    }
+
+    @Test
+    void ShardedPersonService_createPerson_storedInTheShardOfItsId(){
+        List<Person> created = IntStream.range(0, 60).mapToObj(i -> create("first" + i, "last" + i)).toList();
+
+        Assertions.assertThat(created).allSatisfy(person -> {
+            PersonShard shard = shards.get((int) (person.getId() % SHARDS));
+            Assertions.assertThat(shard.existsById(person.getId())).isTrue();
+            Assertions.assertThat(shardedPersonService.getPersonById(person.getId())).get()
+                    .extracting(Person::getFirstName).isEqualTo(person.getFirstName());
+        });
+        // Spread across the shards
+        Assertions.assertThat(shards).allSatisfy(shard -> Assertions.assertThat(shard.findAllOrderedById()).isNotEmpty());
+    }
+
+    @Test
+    void ShardedPersonService_getPersonsPage_mergedInIdOrder(){
+        List<Long> ids = IntStream.range(0, 25).mapToObj(i -> create("first" + i, "last" + i).getId()).sorted().toList();
+
+        List<Person> first = shardedPersonService.getPersonsPage(0, 10);
+        List<Person> second = shardedPersonService.getPersonsPage(first.get(9).getId(), 10);
+        List<Person> last = shardedPersonService.getPersonsPage(second.get(9).getId(), 10);
+
+        Assertions.assertThat(first).extracting(Person::getId).containsExactlyElementsOf(ids.subList(0, 10));
+        Assertions.assertThat(second).extracting(Person::getId).containsExactlyElementsOf(ids.subList(10, 20));
+        Assertions.assertThat(last).extracting(Person::getId).containsExactlyElementsOf(ids.subList(20, 25));
+        Assertions.assertThat(shardedPersonService.getAllPersons()).extracting(Person::getId).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void ShardedPersonService_searchPersons_prefixPagesInNameOrder(){
+        List.of("Salma", "Salim", "Sami", "Salah", "Nadia", "Saloua", "Said").forEach(name -> create(name, "Idrissi"));
+
+        List<Person> page0 = shardedPersonService.searchPersons("Sal", SearchField.FIRST_NAME, SearchMode.PREFIX, 0, 2);
+        List<Person> page1 = shardedPersonService.searchPersons("Sal", SearchField.FIRST_NAME, SearchMode.PREFIX, 1, 2);
+
+        Assertions.assertThat(page0).extracting(Person::getFirstName).containsExactly("Salah", "Salim");
+        Assertions.assertThat(page1).extracting(Person::getFirstName).containsExactly("Salma", "Saloua");
+    }
+
+    @Test
+    void ShardedPersonService_searchPersons_containsInIdOrder(){
+        List<Long> ids = List.of("Amine", "Yasmine", "Nadia", "Mina", "Omar").stream()
+                .map(name -> create(name, "Rabat"))
+                .filter(person -> person.getFirstName().toLowerCase().contains("min"))
+                .map(Person::getId).sorted().toList();
+
+        Assertions.assertThat(shardedPersonService.searchPersons("MIN", SearchField.ANY, SearchMode.CONTAINS, 0, 10))
+                .extracting(Person::getId).containsExactlyElementsOf(ids);
+        // LIKE wildcards are matched literally
+        Assertions.assertThat(shardedPersonService.searchPersons("%", SearchField.ANY, SearchMode.CONTAINS, 0, 10)).isEmpty();
+    }
+
+    @Test
+    void ShardedPersonService_updatePerson_staleVersionConflicts(){
+        Person salima = create("Salima", "Gaudin");
+
+        Person updated = shardedPersonService.updatePerson(PersonDto.builder().id(salima.getId()).version(0L)
+                .firstName("Nadia").lastName("Gaudin").build());
+
+        Assertions.assertThat(updated.getVersion()).isEqualTo(1L);
+        Assertions.assertThat(shardedPersonService.getPersonById(salima.getId())).get()
+                .extracting(Person::getFirstName, Person::getVersion).containsExactly("Nadia", 1L);
+        Assertions.assertThatThrownBy(() -> shardedPersonService.updatePerson(PersonDto.builder().id(salima.getId())
+                .version(0L).firstName("Amina").build())).isInstanceOf(OptimisticLockingFailureException.class);
+        Assertions.assertThat(shardedPersonService.updatePerson(PersonDto.builder().id(salima.getId() + SHARDS * 100L)
+                .firstName("Nobody").build())).isNull();
+    }
+
+    @Test
+    void ShardedPersonService_deletePersonById_onlyInItsShard(){
+        Person salima = create("Salima", "Gaudin");
+
+        Assertions.assertThat(shardedPersonService.deletePersonById(salima.getId())).isTrue();
+        Assertions.assertThat(shardedPersonService.deletePersonById(salima.getId())).isFalse();
+        Assertions.assertThat(shardedPersonService.getPersonById(salima.getId())).isEmpty();
+    }
+
+    @Test
+    void ShardedPersonService_createPerson_creationDatePlacementKeepsABucketTogether() throws Exception {
+        shardedPersonService.destroy();
+        personProperties.getSharding().setPlacement(PersonProperties.Sharding.Placement.CREATION_DATE);
+        personProperties.getSharding().setCreationDateBucket(Duration.ofDays(1));
+        shardedPersonService = new ShardedPersonService(shards, personProperties);
+
+        List<Long> remainders = IntStream.range(0, 10).mapToObj(i -> create("first" + i, "last" + i))
+                .map(person -> person.getId() % SHARDS).distinct().toList();
+
+        // Unless the test runs across midnight (UTC)
+        Assertions.assertThat(remainders).hasSizeLessThanOrEqualTo(2);
+    }
+}